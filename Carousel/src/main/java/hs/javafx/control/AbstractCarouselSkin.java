@@ -1,30 +1,118 @@
 package hs.javafx.control;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
-import javafx.animation.Transition;
+import javafx.animation.Interpolator;
 import javafx.beans.InvalidationListener;
 import javafx.beans.Observable;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
+import javafx.event.EventHandler;
 import javafx.geometry.HPos;
 import javafx.geometry.Point2D;
 import javafx.geometry.VPos;
+import javafx.scene.CacheHint;
 import javafx.scene.Node;
+import javafx.scene.control.FocusModel;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.Shape;
 import javafx.scene.transform.Translate;
 import javafx.util.Callback;
-import javafx.util.Duration;
 
 import com.sun.javafx.scene.control.skin.SkinBase;
 
 public abstract class AbstractCarouselSkin<T> extends SkinBase<Carousel<T>, CarouselBehavior<T>> {
   private final ArrayList<CarouselCell<T>> cells = new ArrayList<>();
+  private final List<CarouselCell<T>> orderedCells = new ArrayList<>();  // back-to-front
+  private final List<CarouselCell<T>> visibleCells = new ArrayList<>();
+  private final Deque<CarouselCell<T>> cellPool = new ArrayDeque<>();
+
+  /**
+   * The number of cells by which the number of cells that fit must drop below the current
+   * number of cells before cells are released.
+   */
+  private static final double CELL_COUNT_HYSTERESIS = 0.5;
+
+  /**
+   * The maximum number of released cells kept for reuse.  Further released cells are left to
+   * be garbage collected.
+   */
+  private static final int MAX_POOLED_CELLS = 16;
+
+  private boolean cellCountInvalid = true;
+
+  /*
+   * Preferred sizes of the cells, measured once and reused by every layout until something
+   * changes which can affect the size of a cell, including layout requests from within the
+   * cell.  Cells are only positioned again when their size or the size of this skin changed,
+   * so animation frames do no size computations.
+   */
+
+  private final Map<CarouselCell<T>, CellMeasurement> measurements = new IdentityHashMap<>();
+  private double positionedWidth = Double.NaN;
+  private double positionedHeight = Double.NaN;
+
+  /**
+   * Cells up to this distance from the focused cell have their content updated at a reduced
+   * rate, cells further away are frozen.
+   */
+  private static final int NEIGHBOUR_DISTANCE = 3;
+  private static final long NEIGHBOUR_UPDATE_INTERVAL_NANOS = 100L * 1000 * 1000;
+
+  /**
+   * The number of items beyond the cells on either side for which thumbnails are kept in the
+   * {@link Carousel#thumbnailAtlasProperty()}, so they are available when the cells move.
+   */
+  private static final int THUMBNAIL_MARGIN = 10;
+
+  private final List<T> atlasItems = new ArrayList<>();
+  private ThumbnailAtlas<T> atlas;
+  private ObservableList<T> atlasItemList;  // the items list the atlas items were taken from
+  private int atlasFrom;
+  private int atlasTo;
+  private boolean atlasItemsInvalid = true;
+
+  private final InvalidationListener atlasItemListListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      atlasItemsInvalid = true;
+    }
+  };
+
+  /**
+   * Tolerance in pixels within which a projected cell is considered to cover exactly its own
+   * bounds, in which case it is not transformed and can be picked like any other node.
+   */
+  private static final double UNTRANSFORMED_TOLERANCE = 0.5;
+
+  private final ProjectedQuadIndex<CarouselCell<T>> hitIndex = new ProjectedQuadIndex<>();
+
+  private double mouseX = Double.NaN;
+  private double mouseY = Double.NaN;
+
+  private final ReadOnlyObjectWrapper<CarouselCell<T>> hoveredCell = new ReadOnlyObjectWrapper<>(this, "hoveredCell");
+
+  /**
+   * The cell currently under the mouse, based on the projected shapes of the cells.  Can be
+   * used to show tooltips or other hover feedback for individual cells.
+   *
+   * @return the cell currently under the mouse
+   */
+  public final ReadOnlyObjectProperty<CarouselCell<T>> hoveredCellProperty() { return hoveredCell.getReadOnlyProperty(); }
+  public final CarouselCell<T> getHoveredCell() { return hoveredCell.get(); }
 
   private double visibleCellsCount;
 
@@ -33,97 +121,536 @@ public abstract class AbstractCarouselSkin<T> extends SkinBase<Carousel<T>, Caro
   }
 
 
-  private final Transition transition = new Transition() {
-    {
-      setCycleDuration(Duration.millis(500));
-    }
+  private static final long TRANSITION_NANOS = 500L * 1000 * 1000;
+
+  /**
+   * Cells up to this distance from the focused cell are never scrubbing, so the cells the user
+   * is looking at always show their full content.
+   */
+  private static final int SCRUB_FOCUS_DISTANCE = 1;
 
+  /**
+   * Weight of the latest measurement in the smoothed scroll speed.
+   */
+  private static final double SCROLL_SPEED_SMOOTHING = 0.25;
+
+  private double scrollSpeed;  // in cells per second
+  private double lastScrollPosition;
+  private long lastScrollNanos = -1;
+
+  private long transitionStartNanos;
+  private boolean transitionRunning;
+
+  /**
+   * Moves the cells to their resting position.  Driven by the shared {@link PulseDriver}, so
+   * the transitions of all carousels on screen are handled in a single frame callback.
+   */
+  private final PulseDriver.PulseListener transition = new PulseDriver.PulseListener() {
     @Override
-    protected void interpolate(double frac) {
-      fractionalIndex = startFractionalIndex - startFractionalIndex * frac;
+    public void pulse(long now) {
+      if(transitionStartNanos < 0) {
+        transitionStartNanos = now;
+      }
+
+      double frac = Math.min(1.0, (double)(now - transitionStartNanos) / TRANSITION_NANOS);
+
+      fractionalIndex = startFractionalIndex - startFractionalIndex * Interpolator.EASE_BOTH.interpolate(0.0, 1.0, frac);
+
+      if(frac == 1.0) {
+        resetScrollSpeed();
+      }
+      else {
+        updateScrollSpeed(now);
+      }
 
       sortChildren();
       doLayout();
+
+      if(frac == 1.0) {
+        stopTransition();
+      }
     }
   };
 
+  private void playTransition() {
+    transitionStartNanos = -1;  // starts at the next frame
+
+    if(!transitionRunning) {
+      transitionRunning = true;
+      PulseDriver.getDefault().add(transition);
+    }
+
+    updateCaching();
+  }
+
+  private void stopTransition() {
+    if(transitionRunning) {
+      transitionRunning = false;
+      PulseDriver.getDefault().remove(transition);
+    }
+
+    updateCaching();
+  }
+
+  /**
+   * Updates the smoothed speed at which the carousel moves from the change in position since
+   * the last update.  Only called for intended movements, so jumps to another item do not
+   * count as fast movements.  Times must come from {@link PulseDriver#getTime()} or a pulse,
+   * so all movements are measured on the same clock.  Several movements within one frame are
+   * measured together.
+   */
+  private void updateScrollSpeed(long now) {
+    double position = getSkinnable().getFocusModel().getFocusedIndex() - fractionalIndex;
+
+    if(lastScrollNanos >= 0 && now <= lastScrollNanos) {
+      return;  // same frame, measured in the next frame from the position at the start of this one
+    }
+
+    if(lastScrollNanos >= 0) {
+      double speed = Math.abs(position - lastScrollPosition) * 1000 * 1000 * 1000 / (now - lastScrollNanos);
+
+      scrollSpeed += (speed - scrollSpeed) * SCROLL_SPEED_SMOOTHING;
+    }
+
+    lastScrollPosition = position;
+    lastScrollNanos = now;
+  }
+
+  private void resetScrollSpeed() {
+    scrollSpeed = 0;
+    lastScrollNanos = -1;
+  }
+
+  /**
+   * Caches the rendered carousel while it is at rest, and renders it live while it moves or
+   * while a cell shows live content at full rate, as the cache would be discarded every frame
+   * anyway.
+   */
+  private void updateCaching() {
+    boolean idle = getSkinnable().isIdleCaching() && !transitionRunning && fractionalIndex == 0;
+
+    for(int i = 0; idle && i < visibleCells.size(); i++) {
+      CarouselCell<T> cell = visibleCells.get(i);
+
+      if(cell.hasLiveContent() && cell.getContentUpdateInterval() == 0) {
+        idle = false;
+      }
+    }
+
+    if(idle != isCache()) {
+      setCacheHint(CacheHint.QUALITY);
+      setCache(idle);
+    }
+  }
+
   private void sortChildren() {
+    if(!cells.isEmpty()) {
+
+      /*
+       * Update the cell indices.
+       */
+
+      int index = getSkinnable().getFocusModel().getFocusedIndex() - (int)Math.round(fractionalIndex);
+      int visibleCellsCount = cells.size();
+      int start = index - (visibleCellsCount - 1) / 2;
+      int end = index + visibleCellsCount / 2;
+
+      updateAtlas(start - THUMBNAIL_MARGIN, end + THUMBNAIL_MARGIN);
+
+      double opacity = ((fractionalIndex > 0 ? fractionalIndex : 1 + fractionalIndex % 1) + 0.5) % 1;
+
+      for(int i = start; i <= end; i++) {
+        CarouselCell<T> carouselCell = cells.get((i + visibleCellsCount) % visibleCellsCount);
+
+        carouselCell.updateIndex(i);
+
+        if(i == start) {
+          carouselCell.setOpacity(opacity);
+        }
+        else if(i == end) {
+          carouselCell.setOpacity(1.0 - opacity);
+        }
+        else {
+          carouselCell.setOpacity(1.0);
+        }
+      }
+    }
 
     /*
-     * Update the cell indices.
+     * Resort the cells so the cells closest to center are on top.
      */
 
-    int index = getSkinnable().getFocusModel().getFocusedIndex() - (int)Math.round(fractionalIndex);
-    int visibleCellsCount = cells.size();
-    int start = index - (visibleCellsCount - 1) / 2;
-    int end = index + visibleCellsCount / 2;
-
-    double opacity = ((fractionalIndex > 0 ? fractionalIndex : 1 + fractionalIndex % 1) + 0.5) % 1;
+    orderedCells.clear();
+    orderedCells.addAll(cells);
+    Collections.sort(orderedCells, Z_ORDER_FRAC);
 
-    for(int i = start; i <= end; i++) {
-      CarouselCell<T> carouselCell = cells.get((i + visibleCellsCount) % visibleCellsCount);
+    updateChildren(orderedCells);
+  }
 
-      carouselCell.updateIndex(i);
+  /**
+   * Retains the items in the given range in the thumbnail atlas, and releases the items which
+   * were retained before but are no longer in range.  Items are retained before they are
+   * released, so items which stay in range keep their place in the atlas.  Called every
+   * frame, so it returns immediately unless the range, the items list or its contents changed.
+   */
+  private void updateAtlas(int from, int to) {
+    ObservableList<T> items = atlas == null ? null : getSkinnable().getItems();
+
+    if(!atlasItemsInvalid && items == atlasItemList && from == atlasFrom && to == atlasTo) {
+      return;
+    }
 
-      if(i == start) {
-        carouselCell.setOpacity(opacity);
+    if(items != atlasItemList) {
+      if(atlasItemList != null) {
+        atlasItemList.removeListener(atlasItemListListener);
       }
-      else if(i == end) {
-        carouselCell.setOpacity(1.0 - opacity);
+
+      atlasItemList = items;
+
+      if(atlasItemList != null) {
+        atlasItemList.addListener(atlasItemListListener);
       }
-      else {
-        carouselCell.setOpacity(1.0);
+    }
+
+    atlasFrom = from;
+    atlasTo = to;
+    atlasItemsInvalid = false;
+
+    List<T> newItems = new ArrayList<>();
+
+    if(atlas != null && items != null) {
+      for(int i = Math.max(0, from); i <= to && i < items.size(); i++) {
+        newItems.add(items.get(i));
       }
     }
 
-    /*
-     * Resort the children of the StackPane so the cells closest to center are on top.  A temporary list
-     * is used to prevent events firing (and to avoid duplicate items in the Scene caused by the sorting steps).
-     */
-    // TODO perhaps this is possible to achieve with toFront() ?
+    if(newItems.equals(atlasItems)) {
+      return;
+    }
 
-    List<Node> temporaryList = new ArrayList<>(getChildren());
-    Collections.sort(temporaryList, Z_ORDER_FRAC);
-    getChildren().setAll(temporaryList);
+    for(T item : newItems) {
+      atlas.retain(item);
+    }
+
+    releaseAtlasItems();
+    atlasItems.addAll(newItems);
+  }
+
+  private void releaseAtlasItems() {
+    for(T item : atlasItems) {
+      atlas.release(item);
+    }
+
+    atlasItems.clear();
+  }
+
+  /**
+   * Releases all items retained in the atlas and stops tracking the items list, so the next
+   * update retains the items again.
+   */
+  private void resetAtlas() {
+    releaseAtlasItems();
+
+    if(atlasItemList != null) {
+      atlasItemList.removeListener(atlasItemListListener);
+      atlasItemList = null;
+    }
+
+    atlasItemsInvalid = true;
+  }
+
+  /**
+   * Updates the children of this skin after the cells were reordered or allocated.  By default
+   * the children are exactly the given cells, so the cells closest to the center are drawn on
+   * top.  Skins which draw cells in another way can override this to add other nodes.<p>
+   *
+   * A temporary list is used to prevent events firing (and to avoid duplicate items in the
+   * Scene caused by the sorting steps).
+   *
+   * @param orderedCells all cells in back-to-front order, never modify this list
+   */
+  protected void updateChildren(List<CarouselCell<T>> orderedCells) {
+    getChildren().setAll(new ArrayList<Node>(orderedCells));
   }
 
   private double startFractionalIndex;
   private double fractionalIndex;
 
+  /*
+   * All listeners are kept in fields, so they can be removed again in dispose().
+   */
+
+  private final EventHandler<MouseEvent> mouseTracker = new EventHandler<MouseEvent>() {
+    @Override
+    public void handle(MouseEvent event) {
+      if(event.getEventType() == MouseEvent.MOUSE_EXITED) {
+        mouseX = Double.NaN;
+        mouseY = Double.NaN;
+      }
+      else {
+        Point2D point = sceneToLocal(event.getSceneX(), event.getSceneY());
+
+        mouseX = point.getX();
+        mouseY = point.getY();
+      }
+
+      updateHoveredCell();
+    }
+  };
+
+  private final InvalidationListener cellCountInvalidationListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      cellCountInvalid = true;
+      requestLayout();
+    }
+  };
+
+  private final ChangeListener<Number> focusedIndexListener = new ChangeListener<Number>() {
+    @Override
+    public void changed(ObservableValue<? extends Number> observableValue, Number old, Number current) {
+
+      /*
+       * During a batch update the carousel moves to the new focused index directly, the
+       * cells are updated once the batch update ends.
+       */
+
+      if(getSkinnable().isUpdating()) {
+        stopTransition();
+        fractionalIndex = 0;
+        return;
+      }
+
+      /*
+       * Calculate at how many (fractional) items distance from the middle the carousel currently is and start the transistion that will
+       * move the now focused cell to the middle.
+       */
+
+      startFractionalIndex = fractionalIndex - old.doubleValue() + current.doubleValue();
+      playTransition();
+    }
+  };
+
+  private final InvalidationListener maxCellSizeListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      for(CellMeasurement measurement : measurements.values()) {
+        measurement.invalidate();
+      }
+
+      requestLayout();
+    }
+  };
+
+  private final InvalidationListener thumbnailAtlasListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      resetAtlas();
+      atlas = getSkinnable().getThumbnailAtlas();
+      sortChildren();
+      requestLayout();
+    }
+  };
+
+  private final InvalidationListener idleCachingListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      updateCaching();
+    }
+  };
+
+  private final InvalidationListener updatingListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      if(!getSkinnable().isUpdating()) {
+        sortChildren();
+        requestLayout();
+      }
+    }
+  };
+
+  private final CarouselSelectionModel.SelectionListener selectionListener = new CarouselSelectionModel.SelectionListener() {
+    @Override
+    public void selectionChanged(int from, int to) {
+      for(CarouselCell<T> cell : cells) {
+        if(cell.getIndex() >= from && cell.getIndex() < to) {
+          cell.updateSelection();
+        }
+      }
+    }
+  };
+
+  private final ChangeListener<CarouselSelectionModel<T>> selectionModelListener = new ChangeListener<CarouselSelectionModel<T>>() {
+    @Override
+    public void changed(ObservableValue<? extends CarouselSelectionModel<T>> observableValue, CarouselSelectionModel<T> old, CarouselSelectionModel<T> current) {
+      if(old != null) {
+        old.removeSelectionListener(selectionListener);
+      }
+      if(current != null) {
+        current.addSelectionListener(selectionListener);
+      }
+
+      selectionListener.selectionChanged(0, Integer.MAX_VALUE);
+    }
+  };
+
+  private final FocusModel<T> focusModel;
+
   public AbstractCarouselSkin(final Carousel<T> carousel) {
     super(carousel, new CarouselBehavior<>(carousel));
 
     getStyleClass().setAll("scroll-area");
 
-    InvalidationListener cellCountInvalidationListener = new InvalidationListener() {
-      @Override
-      public void invalidated(Observable observable) {
-        allocateCells();
-        sortChildren();
-      }
-    };
+    Rectangle clip = new Rectangle();
+
+    clip.widthProperty().bind(widthProperty());
+    clip.heightProperty().bind(heightProperty());
+
+    setClip(clip);
+
+    carousel.addEventHandler(MouseEvent.MOUSE_MOVED, mouseTracker);
+    carousel.addEventHandler(MouseEvent.MOUSE_DRAGGED, mouseTracker);
+    carousel.addEventHandler(MouseEvent.MOUSE_EXITED, mouseTracker);
 
     carousel.widthProperty().addListener(cellCountInvalidationListener);
     carousel.densityProperty().addListener(cellCountInvalidationListener);
+    carousel.maxCellWidthProperty().addListener(maxCellSizeListener);
+    carousel.maxCellHeightProperty().addListener(maxCellSizeListener);
 
-    allocateCells();
+    focusModel = carousel.getFocusModel();
+    atlas = carousel.getThumbnailAtlas();
+    focusModel.focusedIndexProperty().addListener(focusedIndexListener);
 
-    carousel.getFocusModel().focusedIndexProperty().addListener(new ChangeListener<Number>() {
-      @Override
-      public void changed(ObservableValue<? extends Number> observableValue, Number old, Number current) {
+    carousel.updatingProperty().addListener(updatingListener);
+    carousel.idleCachingProperty().addListener(idleCachingListener);
+    carousel.thumbnailAtlasProperty().addListener(thumbnailAtlasListener);
+    carousel.selectionModelProperty().addListener(selectionModelListener);
 
-        /*
-         * Calculate at how many (fractional) items distance from the middle the carousel currently is and start the transistion that will
-         * move the now focused cell to the middle.
-         */
+    if(carousel.getSelectionModel() != null) {
+      carousel.getSelectionModel().addSelectionListener(selectionListener);
+    }
+  }
 
-        startFractionalIndex = fractionalIndex - old.doubleValue() + current.doubleValue();
-        transition.playFromStart();
-      }
-    });
+  /**
+   * Detaches this skin from its carousel.  Removes all listeners this skin added to the
+   * carousel, stops animations and releases all cells, so neither the carousel nor any
+   * cached resources keep this skin and its cells reachable.  Subclasses which add their
+   * own listeners must remove them and call this method.
+   */
+  @Override
+  public void dispose() {
+    Carousel<T> carousel = getSkinnable();
+
+    stopTransition();
+
+    carousel.removeEventHandler(MouseEvent.MOUSE_MOVED, mouseTracker);
+    carousel.removeEventHandler(MouseEvent.MOUSE_DRAGGED, mouseTracker);
+    carousel.removeEventHandler(MouseEvent.MOUSE_EXITED, mouseTracker);
+
+    carousel.widthProperty().removeListener(cellCountInvalidationListener);
+    carousel.densityProperty().removeListener(cellCountInvalidationListener);
+    carousel.maxCellWidthProperty().removeListener(maxCellSizeListener);
+    carousel.maxCellHeightProperty().removeListener(maxCellSizeListener);
+
+    focusModel.focusedIndexProperty().removeListener(focusedIndexListener);
+
+    carousel.updatingProperty().removeListener(updatingListener);
+    carousel.idleCachingProperty().removeListener(idleCachingListener);
+    carousel.thumbnailAtlasProperty().removeListener(thumbnailAtlasListener);
+    carousel.selectionModelProperty().removeListener(selectionModelListener);
+
+    if(carousel.getSelectionModel() != null) {
+      carousel.getSelectionModel().removeSelectionListener(selectionListener);
+    }
+
+    resetAtlas();
+    atlas = null;
+
+    for(CarouselCell<T> cell : cells) {
+      releaseCell(cell);
+    }
+
+    cells.clear();
+    cellPool.clear();
+    orderedCells.clear();
+    visibleCells.clear();
+    hitIndex.clear(0);
+    hoveredCell.set(null);
+    getChildren().clear();
+
+    getBehavior().dispose();
+
+    super.dispose();
+  }
+
+  /**
+   * Returns the approximate distance in pixels between two adjacent cells near the center,
+   * which can be used to convert pointer movements to a number of cells.
+   *
+   * @return the approximate distance in pixels between two adjacent cells
+   */
+  public double getCellSpacing() {
+    return getSkinnable().getWidth() / getVisibleCellsCount();
   }
 
-  // Goal: Spacings between Cells should remain similar when width changes
+  /**
+   * Moves the carousel directly by the given (fractional) number of cells without changing the
+   * focused index.  Any running transition is stopped.  Positive values move the cells towards
+   * higher x coordinates.  The position is limited so the center of the carousel stays within
+   * the items.
+   *
+   * @param cellCount the number of cells to move
+   * @return true if the full distance was moved, false if the position was limited
+   */
+  public boolean scroll(double cellCount) {
+    int focusedIndex = getSkinnable().getFocusModel().getFocusedIndex();
+    int itemCount = getSkinnable().getItems() == null ? 0 : getSkinnable().getItems().size();
+    double target = fractionalIndex + cellCount;
+    double limited = Math.max(focusedIndex - itemCount + 1, Math.min(focusedIndex, target));
+
+    stopTransition();
+
+    if(limited != fractionalIndex) {
+      fractionalIndex = limited;
+
+      updateScrollSpeed(PulseDriver.getDefault().getTime());
+
+      sortChildren();
+      doLayout();
+    }
+
+    return limited == target;
+  }
+
+  /**
+   * Focuses the cell closest to the center of the carousel after it was moved by {@link #scroll(double)},
+   * and animates the carousel to its resting position.
+   */
+  public void settle() {
+    FocusModel<T> focusModel = getSkinnable().getFocusModel();
+    int index = focusModel.getFocusedIndex() - (int)Math.round(fractionalIndex);
+
+    if(index != focusModel.getFocusedIndex()) {
+      focusModel.focus(index);  // the focus listener starts the transition
+    }
+    else if(fractionalIndex != 0 && !transitionRunning) {
+      startFractionalIndex = fractionalIndex;
+      playTransition();
+    }
+    else if(!transitionRunning && scrollSpeed > 0) {
+      resetScrollSpeed();  // at rest already, so cells stop scrubbing
+      requestLayout();
+    }
+  }
+
+  /**
+   * Allocates or releases cells to match the current width, so spacings between cells remain
+   * similar when the width changes.  Cells are only released when
+   * the number of cells that fit drops below the current number of cells by more than
+   * {@link #CELL_COUNT_HYSTERESIS}, so small changes in width around a boundary do not
+   * repeatedly add and remove the same cell.  Released cells are kept in a pool of at most
+   * {@link #MAX_POOLED_CELLS} cells for reuse.
+   */
   private void allocateCells() {
     double widthFactor = getSkinnable().getDensity();
 
@@ -132,35 +659,55 @@ public abstract class AbstractCarouselSkin<T> extends SkinBase<Carousel<T>, Caro
 
     int preferredCellCount = (int)visibleCellsCount;
 
-    if(cells.size() > preferredCellCount) {
-      List<CarouselCell<T>> cellsToBeDeleted = cells.subList(preferredCellCount, cells.size());
+    if(cells.size() > preferredCellCount && visibleCellsCount < cells.size() - CELL_COUNT_HYSTERESIS) {
+      List<CarouselCell<T>> cellsToBeReleased = cells.subList(preferredCellCount, cells.size());
 
-      for(CarouselCell<T> carouselCell : cellsToBeDeleted) {
-        carouselCell.updateIndex(-1);
+      for(CarouselCell<T> carouselCell : cellsToBeReleased) {
+        releaseCell(carouselCell);
       }
 
-      getChildren().removeAll(cellsToBeDeleted);
-      cellsToBeDeleted.clear();
+      cellsToBeReleased.clear();
     }
     else if(cells.size() < preferredCellCount) {
       for(int i = cells.size(); i < preferredCellCount; i++) {
-        CarouselCell<T> cell = createCell();
+        CarouselCell<T> cell = cellPool.isEmpty() ? createCell() : cellPool.pop();
+
+        measurements.put(cell, new CellMeasurement(cell));
 
         cell.updateCarousel(getSkinnable());
         cell.updateIndex(i);
 
         cells.add(cell);
-        getChildren().add(cell);
       }
     }
   }
 
-  private final Comparator<Node> Z_ORDER_FRAC = new Comparator<Node>() {
-    @Override
-    public int compare(Node o1, Node o2) {
-      CarouselCell<?> cell1 = (CarouselCell<?>)o1;
-      CarouselCell<?> cell2 = (CarouselCell<?>)o2;
+  /**
+   * Detaches a cell from its item and from this skin, and keeps it for reuse if the pool is
+   * not full.  Pooled cells do not reference the carousel, so they keep neither the carousel
+   * nor the items alive.
+   */
+  private void releaseCell(CarouselCell<T> cell) {
+    CellMeasurement measurement = measurements.remove(cell);
 
+    if(measurement != null) {
+      measurement.dispose();
+    }
+
+    cell.updateScrubbing(false);
+    cell.updateIndex(-1);
+    cell.updateCarousel(null);
+    cell.setEffect(null);
+    cell.setClip(null);
+
+    if(cellPool.size() < MAX_POOLED_CELLS) {
+      cellPool.push(cell);
+    }
+  }
+
+  private final Comparator<CarouselCell<T>> Z_ORDER_FRAC = new Comparator<CarouselCell<T>>() {
+    @Override
+    public int compare(CarouselCell<T> cell1, CarouselCell<T> cell2) {
       int selectedIndex = getSkinnable().getFocusModel().getFocusedIndex();
 
       int dist1 = Math.abs(selectedIndex - cell1.getIndex() - (int)Math.round(fractionalIndex));
@@ -211,12 +758,24 @@ public abstract class AbstractCarouselSkin<T> extends SkinBase<Carousel<T>, Caro
 
   @Override
   protected void layoutChildren() {
+
+    /*
+     * Changes in width or density are handled here, at most once per pulse, instead of
+     * for every intermediate width during a resize.
+     */
+
+    if(cellCountInvalid) {
+      cellCountInvalid = false;
+
+      allocateCells();
+      sortChildren();
+    }
+
     doLayout();
   }
 
   private void doLayout() {
     Shape cumulativeClip = null;
-    int selectedIndex = getSkinnable().getFocusModel().getFocusedIndex();
 
     /*
      * Positions the Cells in front-to-back order.  This is done in order to clip the reflections
@@ -224,46 +783,388 @@ public abstract class AbstractCarouselSkin<T> extends SkinBase<Carousel<T>, Caro
      * blend with each other as they are partially transparent in nature.
      */
 
-    ListIterator<Node> iterator = getChildren().listIterator(getChildren().size());
+    ListIterator<CarouselCell<T>> iterator = orderedCells.listIterator(orderedCells.size());
+
+    visibleCells.clear();
+    hitIndex.clear(getWidth());
+
+    if(getWidth() != positionedWidth || getHeight() != positionedHeight) {
+      positionedWidth = getWidth();
+      positionedHeight = getHeight();
+
+      for(CellMeasurement measurement : measurements.values()) {
+        measurement.positioned = false;
+      }
+    }
 
     while(iterator.hasPrevious()) {
-      @SuppressWarnings("unchecked")
-      CarouselCell<T> cell = (CarouselCell<T>)iterator.previous();
+      CarouselCell<T> cell = iterator.previous();
+
+      if(cell.isEmpty()) {
+        cell.setVisible(false);
+      }
+      else {
+        visibleCells.add(cell);
+      }
+    }
+
+    prepareLayout(visibleCells);
+
+    boolean scrubbing = scrollSpeed > getSkinnable().getScrubSpeedThreshold();
+    Iterator<CarouselCell<T>> visibleCellsIterator = visibleCells.iterator();
+
+    /*
+     * The visibility of each cell is set once, after layoutCell decided whether the cell is
+     * shown, so cells which stay hidden do not become visible in between.
+     */
+
+    while(visibleCellsIterator.hasNext()) {
+      CarouselCell<T> cell = visibleCellsIterator.next();
+      double index = getCellIndex(cell);
+      int distance = (int)Math.round(Math.abs(index));
 
-      cell.setVisible(!cell.isEmpty());
+      cell.setContentUpdateInterval(getContentUpdateInterval(distance));
+      cell.updateScrubbing(scrubbing && distance > SCRUB_FOCUS_DISTANCE);
 
-      if(!cell.isEmpty()) {
-        Shape clip = layoutCell(cell, selectedIndex - cell.getIndex() - fractionalIndex);
+      CellMeasurement measurement = measurements.get(cell);
 
-        layoutInArea(cell, getWidth() / 2, getHeight() / 2, 0, 0, 0, HPos.CENTER, VPos.CENTER);
+      measurement.hitQuadSet = false;
+      measurement.hidden = false;
 
-        if(cumulativeClip != null) {
-          Shape cellClip = Shape.intersect(cumulativeClip, new Rectangle(0, 0, getWidth(), getHeight()));  // TODO there must be a better way to just copy a Shape...
-          Point2D localToParent = cell.localToParent(0, 0);
+      Shape clip = layoutCell(cell, index);
+
+      if(measurement.hidden) {
+        cell.setVisible(false);
+        cell.setMouseTransparent(true);
+        visibleCellsIterator.remove();
+        continue;
+      }
 
-          cellClip.getTransforms().add(new Translate(-localToParent.getX(), -localToParent.getY()));
+      cell.setVisible(isCellRendered(cell));
 
-          cell.setClip(cellClip);
+      if(!measurement.positioned) {
+        measurement.positioned = true;
+        measurement.positioning = true;
+
+        try {
+          layoutInArea(cell, getWidth() / 2, getHeight() / 2, 0, 0, 0, HPos.CENTER, VPos.CENTER);
         }
-        else {
-          cell.setClip(null);
+        finally {
+          measurement.positioning = false;
         }
+      }
 
-        if(clip != null) {
-          clip.getTransforms().add(cell.getLocalToParentTransform());
+      /*
+       * Transformed cells are picked with their projected shapes, see getCellAt, as picking
+       * ignores effects.  Cells which are not transformed, like a focused cell shown at its
+       * own size, remain pickable so controls inside them can be used.
+       */
 
-          if(cumulativeClip == null) {
-            cumulativeClip = new Rectangle(0, 0, getWidth(), getHeight());
-          }
+      if(measurement.hitQuadSet) {
+        double[] hitQuad = measurement.hitQuad;
 
-          cumulativeClip = Shape.subtract(cumulativeClip, clip);
+        hitIndex.add(cell, hitQuad, cell.getLayoutX(), cell.getLayoutY());
+
+        double projectedHeight = Math.max(hitQuad[7] - hitQuad[1], hitQuad[5] - hitQuad[3]);
+
+        cell.updateLevelOfDetail(ImagePyramid.toLevel(projectedHeight, getCellPrefHeight(cell)));
+        cell.setMouseTransparent(!isUntransformed(cell, hitQuad));
+      }
+      else {
+        cell.setMouseTransparent(true);
+      }
+
+      if(cumulativeClip != null) {
+        Shape cellClip = Shape.intersect(cumulativeClip, new Rectangle(0, 0, getWidth(), getHeight()));  // TODO there must be a better way to just copy a Shape...
+        Point2D localToParent = cell.localToParent(0, 0);
+
+        cellClip.getTransforms().add(new Translate(-localToParent.getX(), -localToParent.getY()));
+
+        cell.setClip(cellClip);
+      }
+      else {
+        cell.setClip(null);
+      }
+
+      if(clip != null) {
+        clip.getTransforms().add(cell.getLocalToParentTransform());
+
+        if(cumulativeClip == null) {
+          cumulativeClip = new Rectangle(0, 0, getWidth(), getHeight());
         }
+
+        cumulativeClip = Shape.subtract(cumulativeClip, clip);
       }
     }
 
-    setClip(new Rectangle(0, 0, getWidth(), getHeight()));
+    finishLayout(visibleCells);
+
+    hitIndex.build();
+    updateHoveredCell();
+    updateCaching();
+  }
+
+  /**
+   * Sets the area of the given cell which responds to the mouse during the current layout
+   * pass.  Should be called from {@link #layoutCell(CarouselCell, double)}; cells for which no
+   * area is set cannot be clicked or hovered.
+   *
+   * @param cell a cell of this skin
+   * @param quad an array of 8 values containing the corners of the area in the local
+   *        coordinates of the cell in the order upper left x, y, upper right x, y, lower right
+   *        x, y and lower left x, y
+   */
+  protected final void setHitQuad(CarouselCell<T> cell, double[] quad) {
+    CellMeasurement measurement = measurements.get(cell);
+
+    if(measurement == null) {
+      throw new IllegalArgumentException("not a cell of this skin: " + cell);
+    }
+
+    System.arraycopy(quad, 0, measurement.hitQuad, 0, 8);
+    measurement.hitQuadSet = true;
+  }
+
+  /**
+   * Hides the given cell during the current layout pass, for cells which fall outside of the
+   * area in which cells are shown.  Should be called from {@link #layoutCell(CarouselCell, double)};
+   * hidden cells are not positioned, cannot be clicked and are not passed to {@link #finishLayout(List)}.
+   *
+   * @param cell a cell of this skin
+   */
+  protected final void hideCell(CarouselCell<T> cell) {
+    CellMeasurement measurement = measurements.get(cell);
+
+    if(measurement == null) {
+      throw new IllegalArgumentException("not a cell of this skin: " + cell);
+    }
+
+    measurement.hidden = true;
+  }
+
+  /**
+   * Returns whether the given cell, which was laid out and is not hidden, is rendered as a
+   * node.  Called after {@link #layoutCell(CarouselCell, double)}.  Skins which draw some cells
+   * in another way can override this, so the nodes of those cells are not rendered as well.
+   *
+   * @param cell a cell of this skin
+   * @return whether the given cell is rendered as a node, true by default
+   */
+  protected boolean isCellRendered(CarouselCell<T> cell) {
+    return true;
+  }
+
+  /**
+   * Returns whether the given projected area of a cell covers exactly the bounds of the cell,
+   * so the cell is shown as it is laid out.
+   */
+  private static boolean isUntransformed(CarouselCell<?> cell, double[] quad) {
+    double width = cell.getWidth();
+    double height = cell.getHeight();
+
+    return near(quad[0], 0) && near(quad[1], 0)
+        && near(quad[2], width) && near(quad[3], 0)
+        && near(quad[4], width) && near(quad[5], height)
+        && near(quad[6], 0) && near(quad[7], height);
+  }
+
+  private static boolean near(double value, double expected) {
+    return Math.abs(value - expected) <= UNTRANSFORMED_TOLERANCE;
+  }
+
+  /**
+   * Returns the preferred width of a cell of this skin.  The width is only computed again
+   * after the item, graphic, text, font, style or selected state of the cell changed, the
+   * bounds of its graphic changed or the maximum cell size of the carousel changed.
+   *
+   * @param cell a cell of this skin
+   * @return the preferred width of the given cell
+   */
+  protected final double getCellPrefWidth(CarouselCell<T> cell) {
+    return measurements.get(cell).measure().prefWidth;
+  }
+
+  /**
+   * Returns the preferred height of a cell of this skin.  The height is only computed again
+   * when the width is, see {@link #getCellPrefWidth(CarouselCell)}.
+   *
+   * @param cell a cell of this skin
+   * @return the preferred height of the given cell
+   */
+  protected final double getCellPrefHeight(CarouselCell<T> cell) {
+    return measurements.get(cell).measure().prefHeight;
+  }
+
+  /**
+   * Returns the frontmost cell at the given position, based on the projected shapes of the
+   * cells during the last layout.
+   *
+   * @param x an x coordinate, in the coordinate space of this skin
+   * @param y an y coordinate, in the coordinate space of this skin
+   * @return the frontmost cell at the given position, or null if there is none
+   */
+  public CarouselCell<T> getCellAt(double x, double y) {
+    return hitIndex.find(x, y);
+  }
+
+  private void updateHoveredCell() {
+    hoveredCell.set(Double.isNaN(mouseX) ? null : getCellAt(mouseX, mouseY));
+  }
+
+  /**
+   * Returns the fractional index of the given cell relative to the center of the carousel,
+   * which is the index passed to {@link #layoutCell(CarouselCell, double)}.
+   *
+   * @param cell a cell
+   * @return the fractional index of the given cell relative to the center of the carousel
+   */
+  protected double getCellIndex(CarouselCell<T> cell) {
+    return getSkinnable().getFocusModel().getFocusedIndex() - cell.getIndex() - fractionalIndex;
+  }
+
+  /**
+   * Returns the minimum time between two content updates posted with {@link CarouselCell#postContentUpdate(Runnable)}
+   * for a cell at the given distance from the focused cell.  Each content update renders the
+   * effects of the cell again, so by default only the focused cell is updated at full rate,
+   * its neighbours at a reduced rate, and cells further away are frozen.
+   *
+   * @param distance the distance in cells to the focused cell
+   * @return the minimum time between two content updates in nanoseconds, 0 to update
+   *         immediately, or {@link Long#MAX_VALUE} to freeze the content
+   */
+  protected long getContentUpdateInterval(int distance) {
+    return distance == 0 ? 0
+         : distance <= NEIGHBOUR_DISTANCE ? NEIGHBOUR_UPDATE_INTERVAL_NANOS
+         : Long.MAX_VALUE;
+  }
+
+  /**
+   * Called once per layout pass before {@link #layoutCell(CarouselCell, double)} is called for
+   * each of the given cells.  Skins can override this to do calculations for all cells in a
+   * single batch.
+   *
+   * @param cells the non-empty cells in front-to-back order, including cells which will be
+   *        hidden by {@link #hideCell(CarouselCell)}, never modify this list
+   */
+  protected void prepareLayout(List<CarouselCell<T>> cells) {
+  }
+
+  /**
+   * Called once per layout pass after {@link #layoutCell(CarouselCell, double)} was called for
+   * each of the given cells and the cells were positioned.
+   *
+   * @param cells the cells which are shown in front-to-back order, never modify this list
+   */
+  protected void finishLayout(List<CarouselCell<T>> cells) {
   }
 
   // index = fractional index
   public abstract Shape layoutCell(CarouselCell<T> cell, double index);
+
+  /**
+   * The cached preferred size of a cell, together with the listeners which invalidate it, and
+   * the area of the cell which responds to the mouse and whether the cell is hidden during the
+   * current layout pass.
+   */
+  private final class CellMeasurement implements InvalidationListener {
+    private final CarouselCell<T> cell;
+    private final double[] hitQuad = new double[8];
+
+    private boolean hitQuadSet;
+    private boolean hidden;
+
+    private Node graphic;
+    private boolean valid;
+    private double prefWidth;
+    private double prefHeight;
+
+    boolean positioned;
+    boolean positioning;  // resizing the cell requests a layout of it, which should not invalidate the measurement
+
+    CellMeasurement(CarouselCell<T> cell) {
+      this.cell = cell;
+
+      cell.itemProperty().addListener(this);
+      cell.graphicProperty().addListener(this);
+      cell.textProperty().addListener(this);
+      cell.fontProperty().addListener(this);
+      cell.styleProperty().addListener(this);
+      cell.getStyleClass().addListener(this);
+      cell.selectedProperty().addListener(this);
+      cell.needsLayoutProperty().addListener(this);
+
+      updateGraphic();
+    }
+
+    CellMeasurement measure() {
+      if(!valid) {
+        valid = true;
+        prefWidth = cell.prefWidth(50);
+        prefHeight = cell.prefHeight(50);
+      }
+
+      return this;
+    }
+
+    void invalidate() {
+      valid = false;
+      positioned = false;
+    }
+
+    /**
+     * Invalidates the measurement when anything which can affect the size of the cell changes.
+     * A cell needs layout when any of its descendants requested one, for example a nested node
+     * of its graphic which changed its preferred size.  Such requests already reach this skin,
+     * so they only invalidate the measurement.
+     */
+    @Override
+    public void invalidated(Observable observable) {
+      if(observable == cell.needsLayoutProperty()) {
+        if(cell.isNeedsLayout() && !positioning) {
+          invalidate();
+        }
+
+        return;
+      }
+
+      if(observable == cell.graphicProperty()) {
+        updateGraphic();
+      }
+
+      invalidate();
+      requestLayout();
+    }
+
+    /**
+     * Tracks the bounds of the graphic, so graphics which change size later, like images which
+     * are still loading, are measured again.
+     */
+    private void updateGraphic() {
+      if(graphic != null) {
+        graphic.layoutBoundsProperty().removeListener(this);
+      }
+
+      graphic = cell.getGraphic();
+
+      if(graphic != null) {
+        graphic.layoutBoundsProperty().addListener(this);
+      }
+    }
+
+    void dispose() {
+      cell.itemProperty().removeListener(this);
+      cell.graphicProperty().removeListener(this);
+      cell.textProperty().removeListener(this);
+      cell.fontProperty().removeListener(this);
+      cell.styleProperty().removeListener(this);
+      cell.getStyleClass().removeListener(this);
+      cell.selectedProperty().removeListener(this);
+      cell.needsLayoutProperty().removeListener(this);
+
+      if(graphic != null) {
+        graphic.layoutBoundsProperty().removeListener(this);
+        graphic = null;
+      }
+    }
+  }
 }
@@ -0,0 +1,152 @@
+package hs.javafx.control;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.scene.Node;
+import javafx.util.Callback;
+
+/**
+ * Cell which creates its graphic on a background thread.<p>
+ *
+ * The graphic for an item is created by the given factory on the {@link Carousel#contentLoaderProperty()}
+ * of the carousel, as nodes which are not yet part of a scene can be created on any thread.
+ * Until the graphic is available, the cell shows a placeholder.  When the cell gets another
+ * item before the graphic was created, creating the graphic is cancelled, and a graphic
+ * which was created for an older item is never shown.<p>
+ *
+ * While the cell is {@link #scrubbingProperty() scrubbing}, no graphics are created at all and
+ * the cell only shows the placeholder for its item.  Cells which can show a meaningful
+ * placeholder per item, like an {@link ImagePlaceholder}, can override {@link #getPlaceholder(Object)}.<p>
+ *
+ * The factory must not access the scene graph or other state of the JavaFX Application
+ * Thread.  If the carousel has no content loader, the graphic is created directly.
+ *
+ * @param <T> the type of the items
+ */
+public class AsyncCarouselCell<T> extends CarouselCell<T> {
+  private final Callback<T, Node> graphicFactory;
+  private final Node placeholder;
+
+  private Future<Node> future;
+  private int generation;  // incremented for each item, so results for older items can be recognized
+  private boolean loadPending;  // whether loading was deferred because the cell was scrubbing
+
+  /**
+   * Creates a new cell.
+   *
+   * @param graphicFactory a callback which creates the graphic for an item on a background thread
+   * @param placeholder a node which is shown until the graphic is available, can be null
+   */
+  public AsyncCarouselCell(Callback<T, Node> graphicFactory, Node placeholder) {
+    if(graphicFactory == null) {
+      throw new IllegalArgumentException("graphicFactory cannot be null");
+    }
+
+    this.graphicFactory = graphicFactory;
+    this.placeholder = placeholder;
+
+    scrubbingProperty().addListener(new InvalidationListener() {
+      @Override
+      public void invalidated(Observable observable) {
+        if(!isScrubbing() && loadPending) {
+          load(getItem());
+        }
+      }
+    });
+  }
+
+  public AsyncCarouselCell(Callback<T, Node> graphicFactory) {
+    this(graphicFactory, null);
+  }
+
+  /**
+   * Returns the node to show for the given item until its graphic is available.  Called on
+   * the JavaFX Application Thread for every item the cell gets, so it should be cheap.  By
+   * default returns the placeholder given at construction.
+   *
+   * @param item an item
+   * @return the node to show until the graphic is available, can be null
+   */
+  protected Node getPlaceholder(T item) {
+    return placeholder;
+  }
+
+  /**
+   * Called on the JavaFX Application Thread when creating the graphic for the current item of
+   * the cell failed.  The placeholder remains shown.  By default does nothing.
+   *
+   * @param item the item for which creating the graphic failed
+   * @param exception the exception thrown by the graphic factory
+   */
+  protected void loadFailed(T item, Throwable exception) {
+  }
+
+  @Override
+  protected void updateItem(T item, boolean empty) {
+    super.updateItem(item, empty);
+
+    ++generation;
+    loadPending = false;
+
+    if(future != null) {
+      future.cancel(false);
+      future = null;
+    }
+
+    if(empty || getCarousel() == null) {
+      setGraphic(null);
+      return;
+    }
+
+    setGraphic(getPlaceholder(item));
+
+    if(isScrubbing()) {
+      loadPending = true;
+    }
+    else {
+      load(item);
+    }
+  }
+
+  private void load(final T item) {
+    final int currentGeneration = generation;
+    ContentLoader contentLoader = getCarousel().getContentLoader();
+
+    loadPending = false;
+
+    if(contentLoader == null) {
+      setGraphic(graphicFactory.call(item));
+      return;
+    }
+
+    future = contentLoader.load(new Callable<Node>() {
+      @Override
+      public Node call() {
+        return graphicFactory.call(item);
+      }
+    }, new Callback<Node, Void>() {
+      @Override
+      public Void call(Node graphic) {
+        if(currentGeneration == generation) {
+          future = null;
+          setGraphic(graphic);
+        }
+
+        return null;
+      }
+    }, new Callback<Throwable, Void>() {
+      @Override
+      public Void call(Throwable exception) {
+        if(currentGeneration == generation) {
+          future = null;
+          loadFailed(item, exception);
+        }
+
+        return null;
+      }
+    });
+  }
+}
@@ -0,0 +1,442 @@
+package hs.javafx.control;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.Effect;
+import javafx.scene.effect.PerspectiveTransform;
+import javafx.scene.effect.Reflection;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Shape;
+
+/**
+ * Skin which draws all cells into a single {@link Canvas} instead of rendering each cell with
+ * its own effects and clip.<p>
+ *
+ * Cells are positioned exactly like in {@link RayCarouselSkin}.  Each cell is rendered once
+ * to an image, which is drawn as a number of vertical strips approximating the perspective
+ * projection of the cell.  The number of strips depends on how much the cell is turned away:
+ * cells facing the viewer are drawn with a single image, and no cell takes more than
+ * {@value #MAX_STRIPS} strips.  Reflections are drawn the same way from a flipped and faded
+ * copy of the image, unless they are nearly transparent.  As the cells are drawn back-to-front, no clip shapes are needed
+ * to hide reflections behind other cells.  Only the frontmost cell is shown as a real node
+ * on top of the canvas, all other cells remain part of the scene for styling but are not
+ * rendered.<p>
+ *
+ * Images of cells are taken again when the item, size, selected state, graphic, level of
+ * detail or scrubbing state of a cell changes, when the image of an {@link ImageView} graphic
+ * changes, and when a content update is applied.
+ * Until an image is available, the cell is shown as a real node.
+ */
+public class CanvasCarouselSkin<T> extends RayCarouselSkin<T> {
+
+  /**
+   * The maximum number of strips per cell.  More strips approximate the projection better but
+   * take longer to draw.
+   */
+  private static final int MAX_STRIPS = 24;
+
+  /**
+   * The largest error in pixels allowed within a strip, both for the horizontal position in the
+   * image and for the steps between the top and bottom edges of adjacent strips.
+   */
+  private static final double MAX_STRIP_ERROR = 2;
+
+  /**
+   * Opacity below which reflections are not drawn.
+   */
+  private static final double MIN_REFLECTION_OPACITY = 0.02;
+
+  private final Canvas canvas = new Canvas();
+  private final Map<CarouselCell<T>, CellImage> cellImages = new IdentityHashMap<>();
+  private final Set<CarouselCell<T>> pendingCellImages = Collections.newSetFromMap(new IdentityHashMap<CarouselCell<T>, Boolean>());
+  private final SnapshotParameters snapshotParameters = new SnapshotParameters();
+
+  private final List<CarouselCell<T>> drawnCells = new ArrayList<>();
+  private final List<Image> drawnImages = new ArrayList<>();
+
+  private CarouselCell<T> frontCell;  // shown as a real node
+  private boolean cellImagesScheduled;
+  private boolean takingImages;  // a snapshot can cause a layout, which should not schedule more images
+
+  /**
+   * Takes images of cells outside of the layout pass, as taking a snapshot during layout could
+   * cause the layout to be done again.
+   */
+  private final PulseDriver.PulseListener cellImageUpdater = new PulseDriver.PulseListener() {
+    @Override
+    public void pulse(long now) {
+      List<CarouselCell<T>> cells = new ArrayList<>(pendingCellImages);
+
+      cellImagesScheduled = false;
+      PulseDriver.getDefault().remove(this);
+      pendingCellImages.clear();
+      takingImages = true;
+
+      try {
+        for(CarouselCell<T> cell : cells) {
+          if(!cell.isEmpty() && getChildren().contains(cell)) {
+            cellImages.put(cell, new CellImage(cell, takeImage(cell)));
+          }
+        }
+      }
+      finally {
+        takingImages = false;
+      }
+
+      requestLayout();
+    }
+  };
+
+  public CanvasCarouselSkin(final Carousel<T> carousel) {
+    super(carousel);
+
+    canvas.setMouseTransparent(true);
+    snapshotParameters.setFill(Color.TRANSPARENT);
+  }
+
+  @Override
+  public void dispose() {
+    if(cellImagesScheduled) {
+      cellImagesScheduled = false;
+      PulseDriver.getDefault().remove(cellImageUpdater);
+    }
+
+    cellImages.clear();
+    pendingCellImages.clear();
+    frontCell = null;
+    drawnCells.clear();
+    drawnImages.clear();
+
+    super.dispose();
+  }
+
+  @Override
+  protected void updateChildren(List<CarouselCell<T>> orderedCells) {
+    List<Node> children = new ArrayList<>();
+
+    children.add(canvas);
+    children.addAll(orderedCells);
+
+    getChildren().setAll(children);
+    cellImages.keySet().retainAll(orderedCells);
+  }
+
+  @Override
+  protected void prepareLayout(List<CarouselCell<T>> cells) {
+    super.prepareLayout(cells);
+
+    frontCell = cells.isEmpty() ? null : cells.get(0);
+  }
+
+  @Override
+  public Shape layoutCell(CarouselCell<T> cell, double index) {
+    super.layoutCell(cell, index);
+
+    return null;  // cells are drawn back-to-front, so reflections need no clipping
+  }
+
+  /**
+   * Cells are drawn on the canvas once an image of them is available, except the frontmost
+   * cell which is always shown as a real node.
+   */
+  @Override
+  protected boolean isCellRendered(CarouselCell<T> cell) {
+    return cell == frontCell || getCellImage(cell) == null;
+  }
+
+  @Override
+  protected void finishLayout(List<CarouselCell<T>> cells) {
+    canvas.setWidth(getWidth());
+    canvas.setHeight(getHeight());
+
+    drawnCells.clear();
+    drawnImages.clear();
+
+    for(int i = cells.size() - 1; i >= 0; i--) {
+      CarouselCell<T> cell = cells.get(i);
+
+      if(!cell.isVisible()) {  // see isCellRendered
+        drawnCells.add(cell);
+        drawnImages.add(cellImages.get(cell).image);
+      }
+    }
+
+    drawCells(drawnCells, drawnImages);
+  }
+
+  /**
+   * Returns the canvas on which the cells are drawn, which is the bottommost child of this
+   * skin and has the same size.
+   *
+   * @return the canvas on which the cells are drawn
+   */
+  protected final Canvas getCanvas() {
+    return canvas;
+  }
+
+  /**
+   * Draws the given cells on the canvas, replacing its previous contents.  Called at the end of
+   * each layout pass.  The position, shape and reflection of each cell are available from its
+   * {@link PerspectiveTransform} effect, its opacity from the cell itself.
+   *
+   * @param cells the cells to draw in back-to-front order, never modify this list
+   * @param images the images of the cells, never modify this list
+   */
+  protected void drawCells(List<CarouselCell<T>> cells, List<Image> images) {
+    GraphicsContext gc = canvas.getGraphicsContext2D();
+
+    gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+    for(CarouselCell<T> cell : cells) {
+      drawCell(gc, cell, cellImages.get(cell));
+    }
+
+    gc.setGlobalAlpha(1.0);
+  }
+
+  private CellImage getCellImage(CarouselCell<T> cell) {
+    CellImage cellImage = cellImages.get(cell);
+
+    if(cellImage != null && cellImage.isValidFor(cell)) {
+      return cellImage;
+    }
+
+    if(takingImages) {
+      return null;
+    }
+
+    pendingCellImages.add(cell);
+
+    if(!cellImagesScheduled) {
+      cellImagesScheduled = true;
+      PulseDriver.getDefault().add(cellImageUpdater);
+    }
+
+    return null;
+  }
+
+  private WritableImage takeImage(CarouselCell<T> cell) {
+    Effect effect = cell.getEffect();
+    Node clip = cell.getClip();
+    boolean visible = cell.isVisible();
+    double opacity = cell.getOpacity();
+
+    try {
+      cell.setEffect(null);
+      cell.setClip(null);
+      cell.setVisible(true);
+      cell.setOpacity(1.0);
+
+      return cell.snapshot(snapshotParameters, null);
+    }
+    finally {
+      cell.setEffect(effect);
+      cell.setClip(clip);
+      cell.setVisible(visible);
+      cell.setOpacity(opacity);
+    }
+  }
+
+  /**
+   * Draws a cell as vertical strips between the corners of its perspective transform.  The
+   * position within the image of each strip is interpolated perspective correct, using the
+   * heights of the left and right edges as a measure of their depth.
+   */
+  private void drawCell(GraphicsContext gc, CarouselCell<T> cell, CellImage cellImage) {
+    if(!(cell.getEffect() instanceof PerspectiveTransform)) {
+      return;
+    }
+
+    PerspectiveTransform pt = (PerspectiveTransform)cell.getEffect();
+    Reflection reflection = pt.getInput() instanceof Reflection ? (Reflection)pt.getInput() : null;
+    Image image = cellImage.image;
+    boolean reflectionVisible = reflection != null && cell.getOpacity() * Math.max(reflection.getTopOpacity(), reflection.getBottomOpacity()) >= MIN_REFLECTION_OPACITY;
+    Image reflectionImage = reflectionVisible ? cellImage.getReflection(reflection) : null;
+
+    double imageWidth = image.getWidth();
+    double imageHeight = image.getHeight();
+    double reflectionTop = reflection == null ? 0 : imageHeight + reflection.getTopOffset();
+    double totalHeight = reflection == null ? imageHeight : reflectionTop + reflection.getFraction() * imageHeight;
+
+    double dx = cell.getLayoutX();
+    double dy = cell.getLayoutY();
+    double leftX = pt.getUlx() + dx;
+    double rightX = pt.getUrx() + dx;
+    double leftHeight = pt.getLly() - pt.getUly();
+    double rightHeight = pt.getLry() - pt.getUry();
+    int strips = toStripCount(Math.abs(rightX - leftX), leftHeight, rightHeight, Math.max(Math.abs(pt.getUry() - pt.getUly()), Math.abs(pt.getLry() - pt.getLly())));
+
+    gc.setGlobalAlpha(cell.getOpacity());
+
+    for(int k = 0; k < strips; k++) {
+      double s0 = (double)k / strips;
+      double s1 = (double)(k + 1) / strips;
+      double s = (s0 + s1) / 2;
+      double u0 = toImageFraction(s0, leftHeight, rightHeight);
+      double u1 = toImageFraction(s1, leftHeight, rightHeight);
+
+      double x0 = leftX + (rightX - leftX) * s0;
+      double x1 = leftX + (rightX - leftX) * s1;
+      double top = pt.getUly() + (pt.getUry() - pt.getUly()) * s + dy;
+      double bottom = pt.getLly() + (pt.getLry() - pt.getLly()) * s + dy;
+      double scale = (bottom - top) / totalHeight;
+
+      gc.drawImage(image, u0 * imageWidth, 0, (u1 - u0) * imageWidth, imageHeight, x0, top, x1 - x0, imageHeight * scale);
+
+      if(reflectionImage != null) {
+        gc.drawImage(reflectionImage, u0 * imageWidth, 0, (u1 - u0) * imageWidth, reflectionImage.getHeight(), x0, top + reflectionTop * scale, x1 - x0, bottom - top - reflectionTop * scale);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of strips needed to draw a cell of the given projected width, given the
+   * projected heights of both edges and the largest vertical offset between the ends of its top
+   * or bottom edge.<p>
+   *
+   * Within a strip the image is mapped linearly, while the projection is not.  For edges with
+   * a height ratio q, the mapping deviates from linear by at most (sqrt(q) - 1) / (sqrt(q) + 1)
+   * of the width, and dividing the width into n strips reduces this error by about n squared.
+   * Cells facing the viewer have equal edges, and are drawn with a single strip.
+   */
+  private static int toStripCount(double width, double leftHeight, double rightHeight, double edgeOffset) {
+    double minHeight = Math.min(Math.abs(leftHeight), Math.abs(rightHeight));
+    double maxHeight = Math.max(Math.abs(leftHeight), Math.abs(rightHeight));
+
+    if(minHeight <= 0) {
+      return MAX_STRIPS;
+    }
+
+    double root = Math.sqrt(maxHeight / minHeight);
+    double deviation = (root - 1) / (root + 1) * width;
+    int strips = Math.max((int)Math.ceil(Math.sqrt(deviation / MAX_STRIP_ERROR)), (int)Math.ceil(edgeOffset / MAX_STRIP_ERROR));
+
+    return Math.max(1, Math.min(MAX_STRIPS, strips));
+  }
+
+  /**
+   * Converts a horizontal fraction of the projected cell to a horizontal fraction of its
+   * image, given the projected heights of both edges which are inversely proportional to
+   * their depth.
+   */
+  private static double toImageFraction(double s, double leftHeight, double rightHeight) {
+    double denominator = (1 - s) * leftHeight + s * rightHeight;
+
+    return denominator == 0 ? s : s * rightHeight / denominator;
+  }
+
+  /**
+   * An image of a cell, with the state of the cell at the time the image was taken, and the
+   * reflection derived from it.<p>
+   *
+   * Besides the item and size, the state includes everything cells commonly change to show
+   * different content for the same item: the graphic, the level of detail and scrubbing state
+   * which cells use to pick an image, the image and viewport of a graphic which is an
+   * {@link ImageView}, and the content updates applied to the cell.
+   */
+  private static class CellImage {
+    final WritableImage image;
+    final Object item;
+    final boolean selected;
+    final double width;
+    final double height;
+    final Node graphic;
+    final int levelOfDetail;
+    final boolean scrubbing;
+    final int contentVersion;
+    final Image graphicImage;
+    final Rectangle2D graphicViewport;
+
+    private WritableImage reflection;
+    private double reflectionFraction;
+    private double reflectionTopOpacity;
+    private double reflectionBottomOpacity;
+
+    CellImage(CarouselCell<?> cell, WritableImage image) {
+      this.image = image;
+      this.item = cell.getItem();
+      this.selected = cell.isSelected();
+      this.width = cell.getWidth();
+      this.height = cell.getHeight();
+      this.graphic = cell.getGraphic();
+      this.levelOfDetail = cell.getLevelOfDetail();
+      this.scrubbing = cell.isScrubbing();
+      this.contentVersion = cell.getContentVersion();
+      this.graphicImage = graphic instanceof ImageView ? ((ImageView)graphic).getImage() : null;
+      this.graphicViewport = graphic instanceof ImageView ? ((ImageView)graphic).getViewport() : null;
+    }
+
+    boolean isValidFor(CarouselCell<?> cell) {
+      if(cell.getItem() != item || cell.isSelected() != selected || cell.getWidth() != width || cell.getHeight() != height) {
+        return false;
+      }
+      if(cell.getGraphic() != graphic || cell.getLevelOfDetail() != levelOfDetail || cell.isScrubbing() != scrubbing || cell.getContentVersion() != contentVersion) {
+        return false;
+      }
+      if(graphic instanceof ImageView) {
+        ImageView imageView = (ImageView)graphic;
+
+        return imageView.getImage() == graphicImage && imageView.getViewport() == graphicViewport;
+      }
+
+      return true;
+    }
+
+    /**
+     * Returns the bottom part of the image, flipped vertically and faded out according to the
+     * given reflection.  Recreated only when the reflection settings change.
+     */
+    Image getReflection(Reflection settings) {
+      if(reflection == null || settings.getFraction() != reflectionFraction || settings.getTopOpacity() != reflectionTopOpacity || settings.getBottomOpacity() != reflectionBottomOpacity) {
+        reflectionFraction = settings.getFraction();
+        reflectionTopOpacity = settings.getTopOpacity();
+        reflectionBottomOpacity = settings.getBottomOpacity();
+        reflection = createReflection();
+      }
+
+      return reflection;
+    }
+
+    private WritableImage createReflection() {
+      PixelReader reader = image.getPixelReader();
+      int width = (int)image.getWidth();
+      int height = (int)image.getHeight();
+      int rows = Math.max(1, Math.min(height, (int)Math.round(height * reflectionFraction)));
+      int[] row = new int[width];
+      WritableImage result = new WritableImage(Math.max(1, width), rows);
+      PixelWriter writer = result.getPixelWriter();
+
+      for(int y = 0; y < rows && width > 0; y++) {
+        double opacity = reflectionTopOpacity + (reflectionBottomOpacity - reflectionTopOpacity) * y / rows;
+
+        reader.getPixels(0, height - 1 - y, width, 1, PixelFormat.getIntArgbInstance(), row, 0, width);
+
+        for(int x = 0; x < width; x++) {
+          int alpha = (int)((row[x] >>> 24) * opacity);
+
+          row[x] = (alpha << 24) | (row[x] & 0xffffff);
+        }
+
+        writer.setPixels(0, y, width, 1, PixelFormat.getIntArgbInstance(), row, 0, width);
+      }
+
+      return result;
+    }
+  }
+}
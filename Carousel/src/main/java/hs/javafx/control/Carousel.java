@@ -5,6 +5,8 @@ import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
 import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -40,6 +42,10 @@ public class Carousel<T> extends Control {
   public final ObjectProperty<FocusModel<T>> focusModelProperty() { return focusModel; }
   public final FocusModel<T> getFocusModel() { return focusModel.get(); }
 
+  private final ObjectProperty<CarouselSelectionModel<T>> selectionModel = new SimpleObjectProperty<>();
+  public final ObjectProperty<CarouselSelectionModel<T>> selectionModelProperty() { return selectionModel; }
+  public final CarouselSelectionModel<T> getSelectionModel() { return selectionModel.get(); }
+
   private final IntegerProperty visibleCellsCount = new SimpleIntegerProperty(30);
   public final IntegerProperty visibleCellsCountProperty() { return visibleCellsCount; }
   public final int getVisibleCellsCount() { return visibleCellsCount.get(); }
@@ -84,6 +90,61 @@ public class Carousel<T> extends Control {
   public final ReadOnlyDoubleProperty maxCellHeightProperty() { return maxCellHeight.getReadOnlyProperty(); }
   public final double getMaxCellHeight() { return maxCellHeight.get(); }
 
+  private final BooleanProperty idleCaching = new SimpleBooleanProperty(this, "idleCaching", true);
+
+  /**
+   * Whether the carousel is rendered to a cached bitmap while it is not moving.  Other parts of
+   * the scene can then be repainted without rendering the effects of all cells again.  The
+   * cache is discarded automatically when the carousel or its cells change, and caching is
+   * suspended while the carousel moves.
+   *
+   * @return whether the carousel is rendered to a cached bitmap while it is not moving
+   */
+  public final BooleanProperty idleCachingProperty() { return idleCaching; }
+  public final boolean isIdleCaching() { return idleCaching.get(); }
+
+  private final ObjectProperty<ContentLoader> contentLoader = new SimpleObjectProperty<>(this, "contentLoader", ContentLoader.getDefault());
+
+  /**
+   * The loader cells use to load their content in the background.  Shared by all carousels
+   * by default.
+   *
+   * @return the loader cells use to load their content in the background
+   */
+  public final ObjectProperty<ContentLoader> contentLoaderProperty() { return contentLoader; }
+  public final ContentLoader getContentLoader() { return contentLoader.get(); }
+
+  private final ObjectProperty<ThumbnailAtlas<T>> thumbnailAtlas = new SimpleObjectProperty<>(this, "thumbnailAtlas");
+
+  /**
+   * The atlas in which the thumbnails of the items near the visible cells are kept, or null if
+   * cells do not use an atlas.  The carousel retains the items of its visible cells and of a
+   * number of cells beyond them, so cells can show their thumbnail from the atlas while they
+   * are far away.
+   *
+   * @return the atlas in which the thumbnails of the items near the visible cells are kept
+   */
+  public final ObjectProperty<ThumbnailAtlas<T>> thumbnailAtlasProperty() { return thumbnailAtlas; }
+  public final ThumbnailAtlas<T> getThumbnailAtlas() { return thumbnailAtlas.get(); }
+
+  private final DoubleProperty scrubSpeedThreshold = new SimpleDoubleProperty(this, "scrubSpeedThreshold", 20);
+
+  /**
+   * The speed in cells per second above which cells away from the focused cell are
+   * {@link CarouselCell#scrubbingProperty() scrubbing}, and should show a placeholder instead of
+   * loading their full content.
+   *
+   * @return the speed in cells per second above which cells are scrubbing
+   */
+  public final DoubleProperty scrubSpeedThresholdProperty() { return scrubSpeedThreshold; }
+  public final double getScrubSpeedThreshold() { return scrubSpeedThreshold.get(); }
+
+  private final ReadOnlyBooleanWrapper updating = new ReadOnlyBooleanWrapper(this, "updating");
+  public final ReadOnlyBooleanProperty updatingProperty() { return updating.getReadOnlyProperty(); }
+  public final boolean isUpdating() { return updating.get(); }
+
+  private int updateDepth;
+
   public Carousel() {
     getStyleClass().setAll("carousel");
 
@@ -91,6 +152,7 @@ public class Carousel<T> extends Control {
 
     items.set(observableArrayList);
     focusModel.set(new CarouselFocusModel<>(this));
+    selectionModel.set(new CarouselSelectionModel<>(this));
 
     maxCellWidth.bind(new DoubleBinding() {
       {
@@ -121,6 +183,65 @@ public class Carousel<T> extends Control {
     });
   }
 
+  /**
+   * Starts a batch update.  While a batch update is in progress, changes to the items are
+   * recorded but cells are not refreshed, the focus is not adjusted and no animations are
+   * started.  When the outermost batch update ends, the focus is fixed up once, the cells
+   * are rebound once and the carousel moves to its new position without animating.  If the
+   * focus is moved explicitly during the batch update, that focus is kept instead.<p>
+   *
+   * Batch updates can be nested; each call must be matched with a call to {@link #endUpdate()}.
+   */
+  public final void beginUpdate() {
+    if(updateDepth++ == 0) {
+      if(getFocusModel() instanceof CarouselFocusModel) {
+        ((CarouselFocusModel<T>)getFocusModel()).beginUpdate();
+      }
+
+      updating.set(true);
+    }
+  }
+
+  /**
+   * Ends a batch update started with {@link #beginUpdate()}.
+   */
+  public final void endUpdate() {
+    if(updateDepth == 0) {
+      throw new IllegalStateException("endUpdate called without matching beginUpdate");
+    }
+
+    if(--updateDepth == 0) {
+
+      /*
+       * The focus is fixed up while still updating, so skins can move to the new
+       * focused index without starting a transition.
+       */
+
+      if(getFocusModel() instanceof CarouselFocusModel) {
+        ((CarouselFocusModel<T>)getFocusModel()).commitUpdate();
+      }
+
+      updating.set(false);
+    }
+  }
+
+  /**
+   * Runs the given changes as a batch update.
+   *
+   * @param changes the changes to make
+   * @see #beginUpdate()
+   */
+  public final void update(Runnable changes) {
+    beginUpdate();
+
+    try {
+      changes.run();
+    }
+    finally {
+      endUpdate();
+    }
+  }
+
   @Override
   protected String getUserAgentStylesheet() {
     return "css/Carousel.css";
@@ -132,7 +253,7 @@ public class Carousel<T> extends Control {
     private ChangeListener<ObservableList<T>> itemsListener = new ChangeListener<ObservableList<T>>() {
       @Override
       public void changed(ObservableValue<? extends ObservableList<T>> observableValue, ObservableList<T> old, ObservableList<T> current) {
-        updateItemsObserver(current, current);
+        updateItemsObserver(old, current);
       }
     };
 
@@ -141,6 +262,10 @@ public class Carousel<T> extends Control {
     private final ListChangeListener<T> itemsContentListener = new ListChangeListener<T>() {
       @Override
       public void onChanged(ListChangeListener.Change<? extends T> change) {
+        if(carousel.isUpdating()) {
+          return;
+        }
+
         change.next();
 
         int i = change.getFrom();
@@ -171,6 +296,9 @@ public class Carousel<T> extends Control {
 
     private WeakListChangeListener<T> weakItemsContentListener = new WeakListChangeListener<>(this.itemsContentListener);
 
+    private int focusedIndexBeforeUpdate = -1;
+    private T focusedItemBeforeUpdate;
+
     public CarouselFocusModel(Carousel<T> carousel) {
       if(carousel == null) {
         throw new IllegalArgumentException("Carousel can not be null");
@@ -183,6 +311,46 @@ public class Carousel<T> extends Control {
       }
     }
 
+    void beginUpdate() {
+      focusedIndexBeforeUpdate = getFocusedIndex();
+      focusedItemBeforeUpdate = getFocusedItem();
+    }
+
+    /**
+     * Moves the focus to the new index of the item which had the focus when the batch update
+     * started, or to the nearest valid index if that item was removed.  If the focus was moved
+     * during the update, it is only limited to the valid range.
+     */
+    void commitUpdate() {
+      int index = focusedIndexBeforeUpdate;
+      T item = focusedItemBeforeUpdate;
+
+      focusedItemBeforeUpdate = null;
+
+      if(isEmpty()) {
+        return;
+      }
+
+      if(getFocusedIndex() != index) {  // focus was moved explicitly during the update, keep it
+        focus(Math.min(getFocusedIndex(), getItemCount() - 1));
+        return;
+      }
+
+      if(index == -1) {
+        return;
+      }
+
+      ObservableList<T> items = carousel.getItems();
+
+      if(index >= items.size() || items.get(index) != item) {
+        int newIndex = items.indexOf(item);
+
+        index = newIndex >= 0 ? newIndex : Math.min(index, items.size() - 1);
+      }
+
+      focus(index);
+    }
+
     private void updateItemsObserver(ObservableList<T> oldList, ObservableList<T> currentList) {
       if(oldList != null) {
         oldList.removeListener(this.weakItemsContentListener);
@@ -3,13 +3,17 @@ package hs.javafx.control;
 import java.util.ArrayList;
 import java.util.List;
 
+import javafx.event.EventHandler;
 import javafx.event.EventType;
 import javafx.geometry.Orientation;
+import javafx.geometry.Point2D;
 import javafx.scene.control.Control;
 import javafx.scene.control.FocusModel;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
+import javafx.scene.input.SwipeEvent;
 
 import com.sun.javafx.scene.control.behavior.BehaviorBase;
 import com.sun.javafx.scene.control.behavior.KeyBinding;
@@ -17,18 +21,113 @@ import com.sun.javafx.scene.control.behavior.OrientedKeyBinding;
 
 public class CarouselBehavior<T> extends BehaviorBase<Carousel<T>> {
 
+  /**
+   * Time without pointer input after which the carousel settles on the nearest cell.
+   */
+  private static final long SETTLE_DELAY_NANOS = 150 * 1000 * 1000L;
+
+  /**
+   * Exponential decay rate of the momentum after a drag or flick, per second.
+   */
+  private static final double FRICTION = 4.0;
+
+  /**
+   * Velocity in cells per second below which momentum stops.
+   */
+  private static final double MIN_VELOCITY = 1.0;
+
+  /**
+   * Velocity in cells per second given to the carousel by a swipe gesture.
+   */
+  private static final double SWIPE_VELOCITY = 20.0;
+
+  /**
+   * Distance in pixels the mouse may move between press and release to still count as a click.
+   */
+  private static final double CLICK_TOLERANCE = 5.0;
+
+  /*
+   * Pointer input is accumulated here and applied to the skin at most once per pulse.
+   */
+
+  private double pendingCellCount;
+  private double velocity;
+  private boolean dragging;
+  private double lastDragPosition;
+  private double dragDistance;
+  private boolean scrolled;  // scrolled since the last press, in which case its release is not a click
+  private boolean settlePending;  // scrolled since the carousel last settled
+  private long lastPulseNanos;
+  private long lastInputNanos;
+  private boolean moving;
+
+  private final PulseDriver.PulseListener pulse = new PulseDriver.PulseListener() {
+    @Override
+    public void pulse(long now) {
+      applyMotion(now);
+    }
+  };
+
+  private final EventHandler<ScrollEvent> scrollHandler = new EventHandler<ScrollEvent>() {
+    @Override
+    public void handle(ScrollEvent event) {
+      AbstractCarouselSkin<T> skin = getSkin();
+
+      if(skin != null) {
+        velocity = 0;
+        addMotion(getControl().getOrientation() == Orientation.HORIZONTAL ? event.getDeltaX() + event.getDeltaY() : event.getDeltaY(), skin);
+        event.consume();
+      }
+    }
+  };
+
+  private final EventHandler<SwipeEvent> swipeHandler = new EventHandler<SwipeEvent>() {
+    @Override
+    public void handle(SwipeEvent event) {
+      if(getSkin() != null && !dragging) {
+        velocity = event.getEventType() == SwipeEvent.SWIPE_RIGHT || event.getEventType() == SwipeEvent.SWIPE_DOWN ? SWIPE_VELOCITY : -SWIPE_VELOCITY;
+        startMotion();
+        event.consume();
+      }
+    }
+  };
+
   public CarouselBehavior(Carousel<T> carousel) {
     super(carousel);
+
+    carousel.addEventHandler(ScrollEvent.SCROLL, scrollHandler);
+    carousel.addEventHandler(SwipeEvent.ANY, swipeHandler);
+  }
+
+  /**
+   * Stops any motion in progress and removes the handlers this behavior added to the
+   * carousel.  Called by the skin when it is disposed.
+   */
+  public void dispose() {
+    stopMotion();
+
+    getControl().removeEventHandler(ScrollEvent.SCROLL, scrollHandler);
+    getControl().removeEventHandler(SwipeEvent.ANY, swipeHandler);
   }
 
   @Override
   protected void callAction(String action) {
+    if(action.startsWith("Focus")) {
+      stopMotion();
+    }
+
     if("FocusPreviousRow".equals(action)) {
       focusPreviousRow();
     }
     else if("FocusNextRow".equals(action)) {
       focusNextRow();
     }
+    else if("ToggleSelection".equals(action)) {
+      toggleSelection();
+    }
+    else if("SelectAll".equals(action)) {
+      selectAll();
+    }
     System.out.println("Action: " + action);
 
     super.callAction(action);
@@ -41,6 +140,144 @@ public class CarouselBehavior<T> extends BehaviorBase<Carousel<T>> {
     if(!getControl().isFocused() && getControl().isFocusTraversable()) {
       getControl().requestFocus();
     }
+
+    if(getSkin() != null) {
+      dragging = true;
+      velocity = 0;
+      dragDistance = 0;
+      scrolled = false;  // a press which stops a moving carousel can still be a click
+      lastDragPosition = getPosition(event);
+      startMotion();
+    }
+  }
+
+  @Override
+  public void mouseDragged(MouseEvent event) {
+    super.mouseDragged(event);
+
+    AbstractCarouselSkin<T> skin = getSkin();
+
+    if(dragging && skin != null) {
+      double position = getPosition(event);
+
+      addMotion(position - lastDragPosition, skin);
+      dragDistance += Math.abs(position - lastDragPosition);
+      lastDragPosition = position;
+    }
+  }
+
+  @Override
+  public void mouseReleased(MouseEvent event) {
+    super.mouseReleased(event);
+
+    AbstractCarouselSkin<T> skin = getSkin();
+
+    if(dragging && dragDistance < CLICK_TOLERANCE && !scrolled && skin != null) {
+      focusCellAt(skin, event);
+    }
+
+    dragging = false;
+  }
+
+  /**
+   * Focuses the cell under the mouse, using the projected shapes of the cells.
+   */
+  private void focusCellAt(AbstractCarouselSkin<T> skin, MouseEvent event) {
+    Point2D point = skin.sceneToLocal(event.getSceneX(), event.getSceneY());
+    CarouselCell<T> cell = skin.getCellAt(point.getX(), point.getY());
+    FocusModel<T> focusModel = getControl().getFocusModel();
+
+    if(cell != null && focusModel != null && !cell.isEmpty()) {
+      stopMotion();
+      focusModel.focus(cell.getIndex());
+    }
+  }
+
+  private double getPosition(MouseEvent event) {
+    return getControl().getOrientation() == Orientation.HORIZONTAL ? event.getX() : event.getY();
+  }
+
+  @SuppressWarnings("unchecked")
+  private AbstractCarouselSkin<T> getSkin() {
+    return getControl().getSkin() instanceof AbstractCarouselSkin ? (AbstractCarouselSkin<T>)getControl().getSkin() : null;
+  }
+
+  private void addMotion(double pixels, AbstractCarouselSkin<T> skin) {
+    pendingCellCount += pixels / skin.getCellSpacing();
+    startMotion();
+  }
+
+  private void startMotion() {
+    lastInputNanos = PulseDriver.getDefault().getTime();  // the clock of the pulses which apply the motion
+
+    if(!moving) {
+      moving = true;
+      lastPulseNanos = lastInputNanos;
+      PulseDriver.getDefault().add(pulse);
+    }
+  }
+
+  private void stopMotion() {
+    if(moving) {
+      moving = false;
+      PulseDriver.getDefault().remove(pulse);
+    }
+
+    pendingCellCount = 0;
+    velocity = 0;
+    dragging = false;
+    scrolled = false;
+    settlePending = false;
+  }
+
+  /**
+   * Applies all pointer input received since the last pulse in one step.  While dragging, the
+   * velocity is tracked so the carousel keeps moving when released.  When there is no more
+   * input and the momentum has run out, the carousel settles and the focus is committed.
+   */
+  private void applyMotion(long now) {
+    AbstractCarouselSkin<T> skin = getSkin();
+    double elapsedSeconds = Math.max(0.001, (now - lastPulseNanos) / 1e9);
+
+    lastPulseNanos = now;
+
+    if(skin == null) {
+      stopMotion();
+      return;
+    }
+
+    if(pendingCellCount != 0) {
+      if(dragging) {
+        velocity = 0.8 * velocity + 0.2 * pendingCellCount / elapsedSeconds;
+      }
+
+      skin.scroll(pendingCellCount);
+      pendingCellCount = 0;
+      scrolled = true;
+      settlePending = true;
+    }
+    else if(dragging) {
+      velocity *= 0.8;  // pointer held still
+    }
+    else if(Math.abs(velocity) > MIN_VELOCITY) {
+      if(!skin.scroll(velocity * elapsedSeconds)) {
+        velocity = 0;
+      }
+
+      scrolled = true;
+      settlePending = true;
+      velocity *= Math.exp(-FRICTION * elapsedSeconds);
+      lastInputNanos = now;
+    }
+    else if(now - lastInputNanos > SETTLE_DELAY_NANOS) {
+      boolean wasScrolled = settlePending;
+
+      stopMotion();
+
+      if(wasScrolled) {
+        skin.settle();
+      }
+    }
   }
 
   private void focusPreviousRow() {
@@ -63,6 +300,27 @@ public class CarouselBehavior<T> extends BehaviorBase<Carousel<T>> {
     focusModel.focusNext();
   }
 
+  private void toggleSelection() {
+    FocusModel<T> focusModel = getControl().getFocusModel();
+    CarouselSelectionModel<T> selectionModel = getControl().getSelectionModel();
+
+    if(focusModel == null || selectionModel == null || focusModel.getFocusedIndex() == -1) {
+      return;
+    }
+
+    selectionModel.toggleSelection(focusModel.getFocusedIndex());
+  }
+
+  private void selectAll() {
+    CarouselSelectionModel<T> selectionModel = getControl().getSelectionModel();
+
+    if(selectionModel == null) {
+      return;
+    }
+
+    selectionModel.selectAll();
+  }
+
   protected static List<KeyBinding> CAROUSEL_BINDINGS = new ArrayList<>();
 
   @Override
@@ -93,6 +351,9 @@ public class CarouselBehavior<T> extends BehaviorBase<Carousel<T>> {
     CAROUSEL_BINDINGS.add(new CarouselKeyBinding(KeyCode.KP_UP, "TraverseUp"));
     CAROUSEL_BINDINGS.add(new CarouselKeyBinding(KeyCode.DOWN, "TraverseDown"));
     CAROUSEL_BINDINGS.add(new CarouselKeyBinding(KeyCode.KP_DOWN, "TraverseDown"));
+
+    CAROUSEL_BINDINGS.add(new KeyBinding(KeyCode.SPACE, "ToggleSelection"));
+    CAROUSEL_BINDINGS.add(new KeyBinding(KeyCode.A, "SelectAll").ctrl());
   }
 
   private static class CarouselKeyBinding extends OrientedKeyBinding {
@@ -4,8 +4,16 @@ import java.lang.ref.WeakReference;
 
 import javafx.beans.InvalidationListener;
 import javafx.beans.Observable;
+import javafx.beans.WeakInvalidationListener;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
 import javafx.beans.property.ReadOnlyObjectProperty;
 import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.beans.value.WeakChangeListener;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.WeakListChangeListener;
@@ -27,12 +35,50 @@ public class CarouselCell<T> extends IndexedCell<T> {
   private final ListChangeListener<T> itemsListener = new ListChangeListener<T>() {
     @Override
     public void onChanged(ListChangeListener.Change<? extends T> change) {
-      updateItem();
+      Carousel<T> carousel = getCarousel();
+
+      if(carousel == null || !carousel.isUpdating()) {
+        updateItem();
+      }
     }
   };
 
   private final WeakListChangeListener<T> weakItemsListener = new WeakListChangeListener<>(this.itemsListener);
 
+  private final ChangeListener<ObservableList<T>> itemsPropertyListener = new ChangeListener<ObservableList<T>>() {
+    @Override
+    public void changed(ObservableValue<? extends ObservableList<T>> observableValue, ObservableList<T> old, ObservableList<T> current) {
+      if(old != null) {
+        old.removeListener(weakItemsListener);
+      }
+      if(current != null) {
+        current.addListener(weakItemsListener);
+      }
+
+      if(!getCarousel().isUpdating()) {
+        updateItem();
+      }
+    }
+  };
+
+  private final WeakChangeListener<ObservableList<T>> weakItemsPropertyListener = new WeakChangeListener<>(this.itemsPropertyListener);
+
+  /**
+   * Rebinds the cell once when a batch update on the carousel ends.
+   */
+  private final InvalidationListener updatingListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      Carousel<T> carousel = getCarousel();
+
+      if(carousel != null && !carousel.isUpdating()) {
+        updateItem();
+      }
+    }
+  };
+
+  private final WeakInvalidationListener weakUpdatingListener = new WeakInvalidationListener(this.updatingListener);
+
   private ReadOnlyObjectWrapper<Carousel<T>> carousel = new ReadOnlyObjectWrapper<Carousel<T>>(this, "carousel") {
     private WeakReference<Carousel<T>> carouselRef = new WeakReference<>(null);
 
@@ -48,6 +94,9 @@ public class CarouselCell<T> extends IndexedCell<T> {
       ObservableList<T> list;
 
       if(oldCarousel != null) {
+        oldCarousel.itemsProperty().removeListener(weakItemsPropertyListener);
+        oldCarousel.updatingProperty().removeListener(weakUpdatingListener);
+
         list = oldCarousel.getItems();
 
         if(list != null) {
@@ -56,15 +105,18 @@ public class CarouselCell<T> extends IndexedCell<T> {
       }
 
       if(carousel != null) {
+        carousel.itemsProperty().addListener(weakItemsPropertyListener);
+        carousel.updatingProperty().addListener(weakUpdatingListener);
+
         list = carousel.getItems();
 
         if(list != null) {
           list.addListener(weakItemsListener);
         }
-
-        this.carouselRef = new WeakReference<>(carousel);
       }
 
+      this.carouselRef = new WeakReference<>(carousel);
+
       updateItem();
     }
   };
@@ -72,6 +124,166 @@ public class CarouselCell<T> extends IndexedCell<T> {
   public final Carousel<T> getCarousel() { return carousel.get(); }
   public final ReadOnlyObjectProperty<Carousel<T>> carouselProperty() { return carousel.getReadOnlyProperty(); }
 
+  private final ReadOnlyIntegerWrapper levelOfDetail = new ReadOnlyIntegerWrapper(this, "levelOfDetail");
+
+  /**
+   * The level of detail at which this cell is currently shown, based on its projected size.
+   * Level 0 means the cell is shown at about full size, and each following level means it is
+   * shown at about half the size of the previous level.  Cells showing images can use this to
+   * pick a level from an {@link ImagePyramid}.  Only changes when the projected size crosses
+   * into another level.
+   *
+   * @return the level of detail at which this cell is currently shown
+   */
+  public final ReadOnlyIntegerProperty levelOfDetailProperty() { return levelOfDetail.getReadOnlyProperty(); }
+  public final int getLevelOfDetail() { return levelOfDetail.get(); }
+
+  final void updateLevelOfDetail(int level) {
+    levelOfDetail.set(level);
+  }
+
+  private final ReadOnlyBooleanWrapper scrubbing = new ReadOnlyBooleanWrapper(this, "scrubbing");
+
+  /**
+   * Whether the carousel is moving so fast that this cell will only be visible briefly.  While
+   * scrubbing, cells should show a cheap placeholder, like an {@link ImagePlaceholder}, and
+   * only load their full content when scrubbing ends.  Cells near the focused cell are never
+   * scrubbing.
+   *
+   * @return whether the carousel is moving so fast that this cell will only be visible briefly
+   */
+  public final ReadOnlyBooleanProperty scrubbingProperty() { return scrubbing.getReadOnlyProperty(); }
+  public final boolean isScrubbing() { return scrubbing.get(); }
+
+  final void updateScrubbing(boolean scrubbing) {
+    this.scrubbing.set(scrubbing);
+  }
+
+  /*
+   * Content updates posted by live content, which are applied at the rate set by the skin.
+   */
+
+  private long contentUpdateInterval;
+  private long lastContentUpdateNanos;
+  private Runnable pendingContentUpdate;
+  private boolean contentUpdateScheduled;
+  private boolean liveContent;  // whether content updates were posted for the current item
+  private int contentVersion;  // incremented for each applied content update
+
+  private final PulseDriver.PulseListener contentUpdater = new PulseDriver.PulseListener() {
+    @Override
+    public void pulse(long now) {
+      if(now - lastContentUpdateNanos >= contentUpdateInterval) {
+        applyContentUpdate(now);
+      }
+    }
+  };
+
+  /**
+   * Posts a change to the content of this cell, for cells which show animated or live content.
+   * Every visible change of the content of a cell causes its effects to be rendered again, so
+   * instead of changing the content directly, such cells should post each change here.  The
+   * change is then applied at the rate the skin allows for this cell, which depends on the
+   * distance of the cell to the focused cell.  When several changes are posted before the
+   * cell may be updated again, only the last one is applied.  Pending changes are discarded
+   * when the cell gets a different item.<p>
+   *
+   * Must be called on the JavaFX Application Thread.
+   *
+   * @param update a change to the content of this cell
+   */
+  public final void postContentUpdate(Runnable update) {
+    if(!liveContent) {
+      liveContent = true;
+      requestLayout();  // lets the skin stop caching while this cell is updated at full rate
+    }
+
+    pendingContentUpdate = update;
+    scheduleContentUpdate();
+  }
+
+  /**
+   * Returns whether content updates were posted for the current item of this cell.
+   *
+   * @return whether content updates were posted for the current item of this cell
+   */
+  final boolean hasLiveContent() {
+    return liveContent;
+  }
+
+  final long getContentUpdateInterval() {
+    return contentUpdateInterval;
+  }
+
+  /**
+   * Returns a number which changes each time a content update is applied, so skins caching
+   * an image of this cell can tell whether it is still up to date.
+   *
+   * @return a number which changes each time a content update is applied
+   */
+  final int getContentVersion() {
+    return contentVersion;
+  }
+
+  /**
+   * Sets the minimum time between two content updates of this cell.  Zero applies updates
+   * immediately, and {@link Long#MAX_VALUE} freezes the content until the interval changes.
+   *
+   * @param nanos the minimum time between two content updates in nanoseconds
+   */
+  final void setContentUpdateInterval(long nanos) {
+    if(contentUpdateInterval != nanos) {
+      contentUpdateInterval = nanos;
+      scheduleContentUpdate();
+    }
+  }
+
+  private void scheduleContentUpdate() {
+    if(pendingContentUpdate == null) {
+      return;
+    }
+
+    if(contentUpdateInterval == 0) {
+      applyContentUpdate(PulseDriver.getDefault().getTime());  // the clock of the throttled updates
+    }
+    else {
+      setContentUpdateScheduled(contentUpdateInterval != Long.MAX_VALUE);  // frozen cells keep the update until unfrozen
+    }
+  }
+
+  private void applyContentUpdate(long now) {
+    Runnable update = pendingContentUpdate;
+
+    pendingContentUpdate = null;
+    lastContentUpdateNanos = now;
+    setContentUpdateScheduled(false);
+
+    if(update != null) {
+      contentVersion++;
+      update.run();
+      requestLayout();  // lets skins which draw images of their cells take a new image
+    }
+  }
+
+  private void discardContentUpdate() {
+    pendingContentUpdate = null;
+    liveContent = false;
+    setContentUpdateScheduled(false);
+  }
+
+  private void setContentUpdateScheduled(boolean scheduled) {
+    if(contentUpdateScheduled != scheduled) {
+      contentUpdateScheduled = scheduled;
+
+      if(scheduled) {
+        PulseDriver.getDefault().add(contentUpdater);
+      }
+      else {
+        PulseDriver.getDefault().remove(contentUpdater);
+      }
+    }
+  }
+
   private void updateItem() {
     Carousel<T> carousel = getCarousel();
     ObservableList<T> list = carousel == null ? null : carousel.getItems();
@@ -82,12 +294,30 @@ public class CarouselCell<T> extends IndexedCell<T> {
       if(item == null || !item.equals(getItem())) {
         System.out.println("Updating item: " + item);
 
+        discardContentUpdate();
         updateItem(item, false);
       }
     }
     else {
+      discardContentUpdate();
       updateItem(null, true);
     }
+
+    updateSelection();
+  }
+
+  /**
+   * Updates the selected state of this cell from the selection model of the carousel.  Only
+   * results in a change of the selected state if this cell was or became selected.
+   */
+  final void updateSelection() {
+    Carousel<T> carousel = getCarousel();
+    CarouselSelectionModel<T> selectionModel = carousel == null ? null : carousel.getSelectionModel();
+    boolean selected = selectionModel != null && !isEmpty() && selectionModel.isSelected(getIndex());
+
+    if(selected != isSelected()) {
+      updateSelected(selected);
+    }
   }
 
   public final void updateCarousel(Carousel<T> carousel) {
@@ -0,0 +1,373 @@
+package hs.javafx.control;
+
+import java.util.Arrays;
+
+/**
+ * Toolkit independent geometry engine for carousels which place their cells on a ring, as
+ * used by {@link RayCarouselSkin}.<p>
+ *
+ * The engine works on a batch of cells at once.  All inputs and outputs are kept in primitive
+ * arrays (one array per component) indexed by slot, so a full frame can be computed in a few
+ * tight loops without allocating.  Usage is:
+ *
+ * <ol>
+ * <li>{@link #setParameters} with the current carousel settings</li>
+ * <li>{@link #setCellCount} followed by {@link #setCell} for each slot</li>
+ * <li>{@link #compute}</li>
+ * <li>reading the results through the getters</li>
+ * </ol>
+ *
+ * Quads are returned in cell local coordinates, in the order expected by a
+ * {@code PerspectiveTransform}: upper left, upper right, lower right, lower left.  The lower
+ * corners include the space reserved for the reflection.
+ */
+public class CarouselGeometry {
+  private static final double VISIBLE_ANGLE = Math.PI * 0.75;
+  private static final double REFLECTION_MAX_HEIGHT = 50;
+
+  private double width;
+  private double viewWidth;
+  private double maxCellHeight;
+  private double visibleCellsCount;
+  private double cellAlignment;
+  private double radiusRatio;
+  private double viewDistanceRatio;
+  private double fieldOfViewRatio;
+  private boolean reflectionEnabled;
+
+  private int count;
+
+  /*
+   * Inputs
+   */
+
+  private double[] index = new double[0];
+  private double[] cellWidth = new double[0];
+  private double[] cellHeight = new double[0];
+
+  /*
+   * Intermediate results, the x/z coordinates of the left and right edge of each cell
+   * and the sine/cosine of their angles.
+   */
+
+  private double[] sin = new double[0];
+  private double[] cos = new double[0];
+  private double[] leftX = new double[0];
+  private double[] leftZ = new double[0];
+  private double[] rightX = new double[0];
+  private double[] rightZ = new double[0];
+
+  /*
+   * Outputs
+   */
+
+  private double[] reflectionTop = new double[0];
+  private double[] reflectionFraction = new double[0];
+  private double[] reflectionTopOpacity = new double[0];
+  private double[] reflectionBottomOpacity = new double[0];
+  private double[] reflectionSpace = new double[0];
+
+  private final double[] reflection = new double[5];
+
+  private double[] quads = new double[0];             // 8 values per slot: ul, ur, lr, ll
+  private double[] reflectionEdges = new double[0];   // 4 values per slot: ul, ur of the reflection
+  private double[] bottomEdges = new double[0];       // 4 values per slot: ll, lr of the cell without reflection
+
+  /**
+   * Sets the carousel settings used for all slots.
+   *
+   * @param width the width of the carousel, which determines the radius of the ring and the
+   *        field of view
+   * @param viewWidth the width of the area the carousel is drawn in, which determines the
+   *        distance of the viewer to the ring
+   * @param maxCellHeight the maximum height of a cell
+   * @param visibleCellsCount the number of cells which fit on the visible part of the ring
+   * @param cellAlignment the vertical alignment of the cells
+   * @param radiusRatio the radius of the ring relative to the width
+   * @param viewDistanceRatio the distance of the viewer relative to the view width
+   * @param fieldOfViewRatio the field of view relative to the width
+   * @param reflectionEnabled whether cells have reflections
+   */
+  public void setParameters(double width, double viewWidth, double maxCellHeight, double visibleCellsCount, double cellAlignment, double radiusRatio, double viewDistanceRatio, double fieldOfViewRatio, boolean reflectionEnabled) {
+    this.width = width;
+    this.viewWidth = viewWidth;
+    this.maxCellHeight = maxCellHeight;
+    this.visibleCellsCount = visibleCellsCount;
+    this.cellAlignment = cellAlignment;
+    this.radiusRatio = radiusRatio;
+    this.viewDistanceRatio = viewDistanceRatio;
+    this.fieldOfViewRatio = fieldOfViewRatio;
+    this.reflectionEnabled = reflectionEnabled;
+  }
+
+  /**
+   * Sets the number of slots to compute, growing the internal buffers if needed.
+   *
+   * @param count the number of slots
+   */
+  public void setCellCount(int count) {
+    if(count > index.length) {
+      int capacity = Math.max(count, index.length * 2);
+
+      index = Arrays.copyOf(index, capacity);
+      cellWidth = Arrays.copyOf(cellWidth, capacity);
+      cellHeight = Arrays.copyOf(cellHeight, capacity);
+      sin = new double[capacity];
+      cos = new double[capacity];
+      leftX = new double[capacity];
+      leftZ = new double[capacity];
+      rightX = new double[capacity];
+      rightZ = new double[capacity];
+      reflectionTop = new double[capacity];
+      reflectionFraction = new double[capacity];
+      reflectionTopOpacity = new double[capacity];
+      reflectionBottomOpacity = new double[capacity];
+      reflectionSpace = new double[capacity];
+      quads = new double[capacity * 8];
+      reflectionEdges = new double[capacity * 4];
+      bottomEdges = new double[capacity * 4];
+    }
+
+    this.count = count;
+  }
+
+  public int getCellCount() {
+    return count;
+  }
+
+  /**
+   * Sets the inputs for a slot.
+   *
+   * @param slot a slot
+   * @param index the fractional index of the cell relative to the center of the carousel
+   * @param width the width of the cell
+   * @param height the height of the cell
+   */
+  public void setCell(int slot, double index, double width, double height) {
+    this.index[slot] = index;
+    this.cellWidth[slot] = width;
+    this.cellHeight[slot] = height;
+  }
+
+  public void compute() {
+    computeReflections();
+    computeCarouselCoordinates();
+    applyViewRotation();
+    project();
+  }
+
+  private void computeReflections() {
+    for(int i = 0; i < count; i++) {
+      reflectionTop[i] = 0;
+      reflectionFraction[i] = 0;
+      reflectionSpace[i] = 0;
+    }
+
+    if(!reflectionEnabled) {
+      return;
+    }
+
+    for(int i = 0; i < count; i++) {
+      if(computeReflection(cellHeight[i], maxCellHeight, cellAlignment, reflection)) {
+        reflectionTop[i] = reflection[0];
+        reflectionFraction[i] = reflection[1];
+        reflectionTopOpacity[i] = reflection[2];
+        reflectionBottomOpacity[i] = reflection[3];
+        reflectionSpace[i] = reflection[4];
+      }
+    }
+  }
+
+  /**
+   * Computes the parameters of the reflection of a cell.  The reflection is placed so it
+   * appears to be on the floor below the tallest possible cell.
+   *
+   * @param cellHeight the height of the cell
+   * @param maxCellHeight the maximum height of a cell
+   * @param cellAlignment the vertical alignment of the cell
+   * @param result an array of at least 5 elements which receives the top offset, the fraction,
+   *        the top opacity and the bottom opacity of the reflection and the vertical space
+   *        needed below the cell to show the reflection
+   * @return true if the cell has a visible reflection, false otherwise (in which case the
+   *         contents of the result array are undefined)
+   */
+  public static boolean computeReflection(double cellHeight, double maxCellHeight, double cellAlignment, double[] result) {
+    double h = cellHeight;
+    double topOfCell = (maxCellHeight - h) * cellAlignment;
+    double top = 2 * (maxCellHeight - topOfCell - h);
+    double topOpacity = 0.5 - 0.5 / REFLECTION_MAX_HEIGHT * top / 2;
+    double bottomOpacity = 0;
+    double portion = (REFLECTION_MAX_HEIGHT - top / 2) / h;
+
+    if(portion < 0 || topOpacity < 0) {
+      topOpacity = 0;
+      portion = 0;
+    }
+    if(portion > 1) {
+      bottomOpacity = 0.5 - 0.5 / portion;
+      portion = 1;
+    }
+
+    result[0] = top;
+    result[1] = portion;
+    result[2] = topOpacity;
+    result[3] = bottomOpacity;
+    result[4] = h * portion + top;
+
+    return portion > 0;
+  }
+
+  private void computeCarouselCoordinates() {
+    double angleStep = VISIBLE_ANGLE / visibleCellsCount;
+    double carouselRadius = width * radiusRatio;
+
+    for(int i = 0; i < count; i++) {
+      double angle = angleStep * index[i] + Math.PI * 0.5;
+
+      cos[i] = Math.cos(angle);
+      sin[i] = -Math.sin(angle);
+    }
+
+    for(int i = 0; i < count; i++) {
+      double halfCellWidth = cellWidth[i] * 0.5;
+      double outer = carouselRadius + halfCellWidth;
+      double inner = carouselRadius - halfCellWidth;
+
+      leftX[i] = outer * cos[i];
+      leftZ[i] = outer * sin[i];
+      rightX[i] = inner * cos[i];
+      rightZ[i] = inner * sin[i];
+    }
+  }
+
+  /**
+   * Rotates the Cells towards the Viewer when they are close to the center.  Also mirrors
+   * the cells after they passed the center to keep the Cells correctly visible for the
+   * viewer.<p>
+   *
+   * The rotation is around the vertical axis through the middle of each cell.  As both
+   * corners of an edge share the same x and z coordinates only the edges need rotating.
+   */
+  private void applyViewRotation() {
+    for(int i = 0; i < count; i++) {
+      double idx = index[i];
+
+      if(idx < 3) {
+        double angle = idx > -3 ? Math.PI / 2 * -idx / 3 + Math.PI / 2 : Math.PI;
+        double s = Math.sin(angle);
+        double c = Math.cos(angle);
+
+        double axisX = (leftX[i] + rightX[i]) / 2;
+        double axisZ = (leftZ[i] + rightZ[i]) / 2;
+
+        double dx = leftX[i] - axisX;
+        double dz = leftZ[i] - axisZ;
+
+        leftX[i] = dz * s + dx * c + axisX;
+        leftZ[i] = dz * c - dx * s + axisZ;
+
+        dx = rightX[i] - axisX;
+        dz = rightZ[i] - axisZ;
+
+        rightX[i] = dz * s + dx * c + axisX;
+        rightZ[i] = dz * c - dx * s + axisZ;
+      }
+    }
+  }
+
+  private void project() {
+    double viewDistance = viewWidth * viewDistanceRatio + viewWidth * radiusRatio;
+    double fov = fieldOfViewRatio * width;
+
+    for(int i = 0; i < count; i++) {
+      double h = cellHeight[i];
+      double cw = cellWidth[i] / 2;
+      double ch = h / 2;
+
+      double uy = -maxCellHeight * 0.5 + (maxCellHeight - h) * cellAlignment;
+      double ly = uy + h + reflectionSpace[i];
+      double by = uy + h;
+      double ry = by + reflectionTop[i];
+
+      double leftScale = fov / (leftZ[i] + viewDistance);
+      double rightScale = fov / (rightZ[i] + viewDistance);
+
+      double lx = leftX[i] * leftScale + cw;
+      double rx = rightX[i] * rightScale + cw;
+
+      int q = i * 8;
+
+      quads[q] = lx;
+      quads[q + 1] = uy * leftScale + ch;
+      quads[q + 2] = rx;
+      quads[q + 3] = uy * rightScale + ch;
+      quads[q + 4] = rx;
+      quads[q + 5] = ly * rightScale + ch;
+      quads[q + 6] = lx;
+      quads[q + 7] = ly * leftScale + ch;
+
+      int r = i * 4;
+
+      reflectionEdges[r] = lx;
+      reflectionEdges[r + 1] = ry * leftScale + ch;
+      reflectionEdges[r + 2] = rx;
+      reflectionEdges[r + 3] = ry * rightScale + ch;
+
+      bottomEdges[r] = lx;
+      bottomEdges[r + 1] = by * leftScale + ch;
+      bottomEdges[r + 2] = rx;
+      bottomEdges[r + 3] = by * rightScale + ch;
+    }
+  }
+
+  /**
+   * Returns the projected quad of all slots, 8 values per slot in the order upper left x, y,
+   * upper right x, y, lower right x, y and lower left x, y.  The returned array is owned by
+   * this engine and is only valid until the next call to {@link #compute()}.
+   *
+   * @return the projected quads of all slots
+   */
+  public double[] getQuads() {
+    return quads;
+  }
+
+  /**
+   * Returns the projected top edge of the reflection of all slots, 4 values per slot in the
+   * order upper left x, y and upper right x, y.  Only valid for slots which have a reflection.
+   *
+   * @return the projected top edges of the reflections of all slots
+   */
+  public double[] getReflectionEdges() {
+    return reflectionEdges;
+  }
+
+  /**
+   * Returns the projected bottom edge of the cells themselves, excluding their reflections, of
+   * all slots, 4 values per slot in the order lower left x, y and lower right x, y.
+   *
+   * @return the projected bottom edges of the cells of all slots
+   */
+  public double[] getBottomEdges() {
+    return bottomEdges;
+  }
+
+  public boolean hasReflection(int slot) {
+    return reflectionFraction[slot] > 0;
+  }
+
+  public double getReflectionTop(int slot) {
+    return reflectionTop[slot];
+  }
+
+  public double getReflectionFraction(int slot) {
+    return reflectionFraction[slot];
+  }
+
+  public double getReflectionTopOpacity(int slot) {
+    return reflectionTopOpacity[slot];
+  }
+
+  public double getReflectionBottomOpacity(int slot) {
+    return reflectionBottomOpacity[slot];
+  }
+}
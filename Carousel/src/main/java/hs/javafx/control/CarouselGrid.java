@@ -0,0 +1,61 @@
+package hs.javafx.control;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.control.Control;
+import javafx.util.Callback;
+
+/**
+ * A vertical stack of horizontal carousels, one for each {@link CarouselRow}.<p>
+ *
+ * Rows are virtualized: only the rows within the visible area, plus {@link #rowMarginProperty()}
+ * rows above and below it, are shown by a live {@link Carousel} with a skin and cells.  Other
+ * rows only keep their items and focused index.  The carousels of rows which scroll out of
+ * view are reused for rows which scroll into view, so memory use and per frame work depend on
+ * the number of visible rows instead of the total number of rows.  All carousels share the
+ * default {@link ContentLoader} and the default {@link PulseDriver}.
+ *
+ * @param <T> the type of the items
+ */
+public class CarouselGrid<T> extends Control {
+  private final ObservableList<CarouselRow<T>> rows = FXCollections.observableArrayList();
+  public final ObservableList<CarouselRow<T>> getRows() { return rows; }
+
+  private final ObjectProperty<Callback<Carousel<T>, CarouselCell<T>>> cellFactory = new SimpleObjectProperty<>(this, "cellFactory");
+  public final ObjectProperty<Callback<Carousel<T>, CarouselCell<T>>> cellFactoryProperty() { return cellFactory; }
+  public final Callback<Carousel<T>, CarouselCell<T>> getCellFactory() { return cellFactory.get(); }
+
+  private final DoubleProperty rowHeight = new SimpleDoubleProperty(this, "rowHeight", 200);
+  public final DoubleProperty rowHeightProperty() { return rowHeight; }
+  public final double getRowHeight() { return rowHeight.get(); }
+
+  private final IntegerProperty rowMargin = new SimpleIntegerProperty(this, "rowMargin", 1);
+
+  /**
+   * The number of rows above and below the visible area which are kept live, so they can be
+   * scrolled into view without delay.
+   *
+   * @return the number of rows above and below the visible area which are kept live
+   */
+  public final IntegerProperty rowMarginProperty() { return rowMargin; }
+  public final int getRowMargin() { return rowMargin.get(); }
+
+  private final IntegerProperty focusedRow = new SimpleIntegerProperty(this, "focusedRow");
+  public final IntegerProperty focusedRowProperty() { return focusedRow; }
+  public final int getFocusedRow() { return focusedRow.get(); }
+
+  public CarouselGrid() {
+    getStyleClass().setAll("carousel-grid");
+  }
+
+  @Override
+  protected String getUserAgentStylesheet() {
+    return "css/Carousel.css";
+  }
+}
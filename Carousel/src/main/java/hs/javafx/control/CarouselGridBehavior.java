@@ -0,0 +1,83 @@
+package hs.javafx.control;
+
+import javafx.event.EventHandler;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.input.KeyEvent;
+
+import com.sun.javafx.scene.control.behavior.BehaviorBase;
+
+public class CarouselGridBehavior<T> extends BehaviorBase<CarouselGrid<T>> {
+
+  /**
+   * Moves between rows.  Installed as a filter, as the focused carousel would otherwise use
+   * these keys for focus traversal, which cannot reach rows that are not shown.  Rows which
+   * are vertical carousels use these keys to move within the row, so they are left to them.
+   */
+  private final EventHandler<KeyEvent> rowNavigationFilter = new EventHandler<KeyEvent>() {
+    @Override
+    public void handle(KeyEvent event) {
+      Carousel<?> carousel = findCarousel(event.getTarget());
+
+      if(carousel != null && carousel.getOrientation() != Orientation.HORIZONTAL) {
+        return;
+      }
+
+      switch(event.getCode()) {
+      case UP:
+      case KP_UP:
+        focusRow(getControl().getFocusedRow() - 1);
+        event.consume();
+        break;
+      case DOWN:
+      case KP_DOWN:
+        focusRow(getControl().getFocusedRow() + 1);
+        event.consume();
+        break;
+      default:
+      }
+    }
+  };
+
+  public CarouselGridBehavior(CarouselGrid<T> grid) {
+    super(grid);
+
+    grid.addEventFilter(KeyEvent.KEY_PRESSED, rowNavigationFilter);
+  }
+
+  /**
+   * Removes the handlers this behavior added to the grid.  Called by the skin when it is
+   * disposed.
+   */
+  public void dispose() {
+    getControl().removeEventFilter(KeyEvent.KEY_PRESSED, rowNavigationFilter);
+  }
+
+  /**
+   * Returns the row carousel containing the given event target.
+   *
+   * @param target an event target
+   * @return the row carousel containing the given event target, or null if there is none
+   */
+  private Carousel<?> findCarousel(Object target) {
+    Node node = target instanceof Node ? (Node)target : null;
+
+    while(node != null && node != getControl()) {
+      if(node instanceof Carousel) {
+        return (Carousel<?>)node;
+      }
+
+      node = node.getParent();
+    }
+
+    return null;
+  }
+
+  private void focusRow(int row) {
+    CarouselGrid<T> grid = getControl();
+
+    if(row >= 0 && row < grid.getRows().size()) {
+      grid.focusedRowProperty().set(row);
+    }
+  }
+}
@@ -0,0 +1,303 @@
+package hs.javafx.control;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+import com.sun.javafx.scene.control.skin.SkinBase;
+
+/**
+ * Skin for {@link CarouselGrid} which only keeps carousels for the rows near the visible area.
+ * Carousels of rows which leave this range are returned to a pool and rebound to rows which
+ * enter it, in a single batch update per carousel.
+ */
+public class CarouselGridSkin<T> extends SkinBase<CarouselGrid<T>, CarouselGridBehavior<T>> {
+
+  /**
+   * Rate at which the vertical position approaches its target, per second.
+   */
+  private static final double SCROLL_RATE = 12.0;
+
+  private final List<RowSlot> slots = new ArrayList<>();
+  private final Deque<RowSlot> slotPool = new ArrayDeque<>();
+
+  private double offset;
+  private double targetOffset;
+  private long lastScrollNanos = -1;
+  private boolean scrolling;
+  private boolean focusRequested;
+
+  /**
+   * Moves the rows towards the target position, on the shared {@link PulseDriver}.
+   */
+  private final PulseDriver.PulseListener scrollAnimation = new PulseDriver.PulseListener() {
+    @Override
+    public void pulse(long now) {
+      double elapsedSeconds = lastScrollNanos < 0 ? 0 : (now - lastScrollNanos) / 1e9;
+
+      lastScrollNanos = now;
+      offset += (targetOffset - offset) * Math.min(1.0, elapsedSeconds * SCROLL_RATE);
+
+      if(Math.abs(targetOffset - offset) < 0.5) {
+        offset = targetOffset;
+        stopScrolling();
+      }
+
+      requestLayout();
+    }
+  };
+
+  private final InvalidationListener layoutInvalidationListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      requestLayout();
+    }
+  };
+
+  private final InvalidationListener focusedRowListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      focusRequested = isFocusWithin();
+      requestLayout();
+    }
+  };
+
+  public CarouselGridSkin(CarouselGrid<T> grid) {
+    super(grid, new CarouselGridBehavior<>(grid));
+
+    grid.getRows().addListener(layoutInvalidationListener);
+    grid.rowHeightProperty().addListener(layoutInvalidationListener);
+    grid.rowMarginProperty().addListener(layoutInvalidationListener);
+    grid.focusedRowProperty().addListener(focusedRowListener);
+    grid.focusedProperty().addListener(focusedRowListener);
+  }
+
+  @Override
+  public void dispose() {
+    CarouselGrid<T> grid = getSkinnable();
+
+    grid.getRows().removeListener(layoutInvalidationListener);
+    grid.rowHeightProperty().removeListener(layoutInvalidationListener);
+    grid.rowMarginProperty().removeListener(layoutInvalidationListener);
+    grid.focusedRowProperty().removeListener(focusedRowListener);
+    grid.focusedProperty().removeListener(focusedRowListener);
+
+    stopScrolling();
+
+    for(RowSlot slot : slots) {
+      slot.release();
+    }
+
+    slots.clear();
+    slotPool.clear();
+    getChildren().clear();
+
+    getBehavior().dispose();
+
+    super.dispose();
+  }
+
+  @Override
+  protected void layoutChildren() {
+    CarouselGrid<T> grid = getSkinnable();
+    ObservableList<CarouselRow<T>> rows = grid.getRows();
+    double width = getWidth();
+    double height = getHeight();
+    double rowHeight = grid.getRowHeight();
+
+    if(rowHeight <= 0) {
+      return;
+    }
+
+    updateTargetOffset(rowHeight, height);
+
+    /*
+     * Determine the range of rows to keep live, and release the carousels of rows outside it
+     * or of rows which were replaced or moved.
+     */
+
+    int firstRow = Math.max(0, (int)(offset / rowHeight) - grid.getRowMargin());
+    int lastRow = Math.min(rows.size() - 1, (int)((offset + height) / rowHeight) + grid.getRowMargin());
+    boolean[] live = new boolean[Math.max(0, lastRow - firstRow + 1)];
+
+    for(Iterator<RowSlot> iterator = slots.iterator(); iterator.hasNext();) {
+      RowSlot slot = iterator.next();
+
+      if(slot.rowIndex < firstRow || slot.rowIndex > lastRow || rows.get(slot.rowIndex) != slot.row) {
+        slot.release();
+        getChildren().remove(slot.carousel);
+        slotPool.add(slot);
+        iterator.remove();
+      }
+      else {
+        live[slot.rowIndex - firstRow] = true;
+      }
+    }
+
+    for(int i = firstRow; i <= lastRow; i++) {
+      if(!live[i - firstRow]) {
+        RowSlot slot = slotPool.isEmpty() ? new RowSlot() : slotPool.poll();
+
+        slot.bind(i, rows.get(i));
+        getChildren().add(slot.carousel);
+        slots.add(slot);
+      }
+    }
+
+    for(RowSlot slot : slots) {
+      slot.carousel.resizeRelocate(0, slot.rowIndex * rowHeight - offset, width, rowHeight);
+
+      if(focusRequested && slot.rowIndex == grid.getFocusedRow()) {
+        focusRequested = false;
+        slot.carousel.requestFocus();
+      }
+    }
+  }
+
+  /**
+   * Scrolls the focused row into view.
+   */
+  private void updateTargetOffset(double rowHeight, double height) {
+    CarouselGrid<T> grid = getSkinnable();
+    double maxOffset = Math.max(0, grid.getRows().size() * rowHeight - height);
+    double top = grid.getFocusedRow() * rowHeight;
+    double target = targetOffset;
+
+    if(top < target) {
+      target = top;
+    }
+    else if(top + rowHeight > target + height) {
+      target = top + rowHeight - height;
+    }
+
+    target = Math.max(0, Math.min(maxOffset, target));
+
+    if(target != targetOffset || offset > maxOffset) {
+      targetOffset = target;
+      offset = Math.min(offset, maxOffset);
+
+      if(!scrolling) {
+        scrolling = true;
+        lastScrollNanos = -1;
+        PulseDriver.getDefault().add(scrollAnimation);
+      }
+    }
+  }
+
+  private void stopScrolling() {
+    if(scrolling) {
+      scrolling = false;
+      PulseDriver.getDefault().remove(scrollAnimation);
+    }
+  }
+
+  private boolean isFocusWithin() {
+    Scene scene = getSkinnable().getScene();
+    Node node = scene == null ? null : scene.getFocusOwner();
+
+    while(node != null) {
+      if(node == getSkinnable()) {
+        return true;
+      }
+
+      node = node.getParent();
+    }
+
+    return false;
+  }
+
+  /**
+   * A carousel together with the row it currently shows.  The carousel is created once and
+   * reused for other rows when its row is no longer near the visible area.
+   */
+  private final class RowSlot {
+    final Carousel<T> carousel = new Carousel<>();
+    final ObservableList<T> emptyItems = FXCollections.observableArrayList();
+
+    int rowIndex = -1;
+    CarouselRow<T> row;
+
+    private final ChangeListener<ObservableList<T>> rowItemsListener = new ChangeListener<ObservableList<T>>() {
+      @Override
+      public void changed(ObservableValue<? extends ObservableList<T>> observableValue, ObservableList<T> old, ObservableList<T> current) {
+        carousel.itemsProperty().set(current);
+      }
+    };
+
+    RowSlot() {
+      CarouselGrid<T> grid = getSkinnable();
+
+      carousel.cellFactoryProperty().bind(grid.cellFactoryProperty());
+
+      carousel.getFocusModel().focusedIndexProperty().addListener(new InvalidationListener() {
+        @Override
+        public void invalidated(Observable observable) {
+          if(row != null && !carousel.isUpdating()) {
+            row.focusedIndexProperty().set(carousel.getFocusModel().getFocusedIndex());
+          }
+        }
+      });
+
+      carousel.focusedProperty().addListener(new InvalidationListener() {
+        @Override
+        public void invalidated(Observable observable) {
+          if(carousel.isFocused() && row != null) {
+            getSkinnable().focusedRowProperty().set(rowIndex);
+          }
+        }
+      });
+    }
+
+    void bind(int rowIndex, CarouselRow<T> row) {
+      this.rowIndex = rowIndex;
+      this.row = row;
+
+      row.itemsProperty().addListener(rowItemsListener);
+
+      carousel.beginUpdate();
+
+      try {
+        carousel.itemsProperty().set(row.getItems());
+        carousel.getFocusModel().focus(row.getFocusedIndex());
+      }
+      finally {
+        carousel.endUpdate();
+      }
+    }
+
+    /**
+     * Releases the row, after which the carousel holds no references to it or its items.
+     */
+    void release() {
+      if(row == null) {
+        return;
+      }
+
+      row.itemsProperty().removeListener(rowItemsListener);
+      row.focusedIndexProperty().set(carousel.getFocusModel().getFocusedIndex());
+
+      row = null;
+      rowIndex = -1;
+
+      carousel.beginUpdate();
+
+      try {
+        carousel.itemsProperty().set(emptyItems);
+      }
+      finally {
+        carousel.endUpdate();
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package hs.javafx.control;
+
+/**
+ * A parametric path along which a {@link PathCarouselSkin} places its cells.<p>
+ *
+ * Coordinates are relative to the size of the carousel: x and z are fractions of its width
+ * and y is a fraction of its height.  The x axis points right and the y axis points down, both
+ * with their origin at the center of the carousel.  The z axis points away from the viewer,
+ * with the plane at z = 0 being the plane at which the focused cell is normally shown.
+ */
+public interface CarouselPath {
+
+  /**
+   * A straight horizontal line, all cells facing the viewer.
+   */
+  public static final CarouselPath FLAT = new CarouselPath() {
+    @Override
+    public void evaluate(double t, double[] point) {
+      point[0] = t - 0.5;
+      point[1] = 0;
+      point[2] = 0;
+    }
+  };
+
+  /**
+   * A half circle curving away from the viewer.
+   */
+  public static final CarouselPath ARC = new CarouselPath() {
+    @Override
+    public void evaluate(double t, double[] point) {
+      double angle = (t - 0.5) * Math.PI;
+
+      point[0] = 0.5 * Math.sin(angle);
+      point[1] = 0;
+      point[2] = 0.5 - 0.5 * Math.cos(angle);
+    }
+  };
+
+  /**
+   * A half circle in the plane of the screen, with the cells on the sides dropping down.
+   */
+  public static final CarouselPath WHEEL = new CarouselPath() {
+    @Override
+    public void evaluate(double t, double[] point) {
+      double angle = (t - 0.5) * Math.PI;
+
+      point[0] = 0.45 * Math.sin(angle);
+      point[1] = 0.45 - 0.45 * Math.cos(angle);
+      point[2] = 0;
+    }
+  };
+
+  /**
+   * A curve which bends away from the viewer on the left and towards the viewer on the right.
+   */
+  public static final CarouselPath S_CURVE = new CarouselPath() {
+    @Override
+    public void evaluate(double t, double[] point) {
+      point[0] = t - 0.5;
+      point[1] = 0;
+      point[2] = 0.2 * Math.sin((0.5 - t) * Math.PI);
+    }
+  };
+
+  /**
+   * Evaluates the path.
+   *
+   * @param t a value between 0 and 1, with 0.5 being the position of the focused cell
+   * @param point an array of at least 3 elements which receives the x, y and z coordinates
+   */
+  void evaluate(double t, double[] point);
+}
@@ -0,0 +1,418 @@
+package hs.javafx.control;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Toolkit independent software renderer for carousels.<p>
+ *
+ * Renders textured quads, as computed by {@link CarouselGeometry}, into an array of
+ * premultiplied ARGB pixels.  Textures are mapped perspective correct, by inverting the
+ * projective mapping of each quad, and can have a reflection which is faded out towards its
+ * bottom.  Quads are drawn in the order they were added, so they should be added back-to-front.
+ * The frame is split into horizontal bands which are rendered in parallel on a
+ * {@link ForkJoinPool}.<p>
+ *
+ * As this class does not depend on JavaFX, it can be used to render carousel images without
+ * a stage, for example to create previews in batch.  Usage is:
+ *
+ * <ol>
+ * <li>{@link #beginFrame} with the size of the frame</li>
+ * <li>{@link #addQuad} for each cell, back-to-front</li>
+ * <li>{@link #render}</li>
+ * <li>reading the result with {@link #getPixels()}</li>
+ * </ol>
+ *
+ * A rasterizer must not be used by more than one thread at a time.
+ */
+public class CarouselRasterizer {
+
+  /**
+   * Number of rows below which a band is not split further.
+   */
+  private static final int BAND_HEIGHT = 16;
+
+  /**
+   * An image to map onto a quad, as premultiplied ARGB pixels.
+   */
+  public static class Texture {
+    final int[] pixels;
+    final int width;
+    final int height;
+
+    /**
+     * Creates a texture.
+     *
+     * @param pixels the ARGB pixels of the texture, row by row
+     * @param width the width of the texture
+     * @param height the height of the texture
+     * @param premultiplied whether the given pixels are premultiplied, if not a premultiplied copy is made
+     */
+    public Texture(int[] pixels, int width, int height, boolean premultiplied) {
+      if(width <= 0 || height <= 0 || pixels.length < width * height) {
+        throw new IllegalArgumentException("invalid texture size: " + width + "x" + height + " with " + pixels.length + " pixels");
+      }
+
+      this.width = width;
+      this.height = height;
+
+      if(premultiplied) {
+        this.pixels = pixels;
+      }
+      else {
+        this.pixels = new int[width * height];
+
+        for(int i = 0; i < this.pixels.length; i++) {
+          int p = pixels[i];
+          int a = p >>> 24;
+
+          this.pixels[i] = a << 24 | mul255((p >> 16) & 0xff, a) << 16 | mul255((p >> 8) & 0xff, a) << 8 | mul255(p & 0xff, a);
+        }
+      }
+    }
+
+    public int getWidth() {
+      return width;
+    }
+
+    public int getHeight() {
+      return height;
+    }
+  }
+
+  private int width;
+  private int height;
+  private int background;
+  private int[] pixels = new int[0];
+
+  /*
+   * Quads, one entry per quad.  Mappings are the inverse of the projective mapping of the
+   * unit square to the quad, 9 values per quad.  Reflections are 4 values per quad: top
+   * offset and fraction relative to the texture height, and the top and bottom opacity.
+   */
+
+  private int quadCount;
+  private Texture[] textures = new Texture[16];
+  private double[] mappings = new double[16 * 9];
+  private double[] bounds = new double[16 * 4];
+  private double[] opacities = new double[16];
+  private double[] reflections = new double[16 * 4];
+
+  /**
+   * Starts a new frame, discarding all quads.
+   *
+   * @param width the width of the frame
+   * @param height the height of the frame
+   * @param background the premultiplied ARGB color to clear the frame with
+   */
+  public void beginFrame(int width, int height, int background) {
+    this.width = Math.max(0, width);
+    this.height = Math.max(0, height);
+    this.background = background;
+
+    if(pixels.length < this.width * this.height) {
+      pixels = new int[this.width * this.height];
+    }
+
+    Arrays.fill(textures, 0, quadCount, null);
+    quadCount = 0;
+  }
+
+  /**
+   * Adds a quad without reflection.
+   *
+   * @param texture the texture to map onto the quad
+   * @param quad an array of 8 values with the corners of the quad in the order upper left x, y, upper right x, y, lower right x, y and lower left x, y
+   * @param dx the horizontal translation to apply to the quad
+   * @param dy the vertical translation to apply to the quad
+   * @param opacity the opacity of the quad
+   */
+  public void addQuad(Texture texture, double[] quad, double dx, double dy, double opacity) {
+    addQuad(texture, quad, dx, dy, opacity, 0, 0, 0, 0);
+  }
+
+  /**
+   * Adds a quad with a reflection.  The quad covers both the texture and its reflection, the
+   * same as a {@code PerspectiveTransform} with a {@code Reflection} as input.
+   *
+   * @param texture the texture to map onto the quad
+   * @param quad an array of 8 values with the corners of the quad in the order upper left x, y, upper right x, y, lower right x, y and lower left x, y
+   * @param dx the horizontal translation to apply to the quad
+   * @param dy the vertical translation to apply to the quad
+   * @param opacity the opacity of the quad
+   * @param reflectionTop the distance between the texture and its reflection, relative to the height of the texture
+   * @param reflectionFraction the part of the texture visible in the reflection, 0 for no reflection
+   * @param reflectionTopOpacity the opacity of the top of the reflection
+   * @param reflectionBottomOpacity the opacity of the bottom of the reflection
+   */
+  public void addQuad(Texture texture, double[] quad, double dx, double dy, double opacity, double reflectionTop, double reflectionFraction, double reflectionTopOpacity, double reflectionBottomOpacity) {
+    if(quadCount == textures.length) {
+      int capacity = quadCount * 2;
+
+      textures = Arrays.copyOf(textures, capacity);
+      mappings = Arrays.copyOf(mappings, capacity * 9);
+      bounds = Arrays.copyOf(bounds, capacity * 4);
+      opacities = Arrays.copyOf(opacities, capacity);
+      reflections = Arrays.copyOf(reflections, capacity * 4);
+    }
+
+    if(!computeMapping(quad, dx, dy, quadCount)) {
+      return;  // degenerate quad
+    }
+
+    int b = quadCount * 4;
+
+    bounds[b] = Double.POSITIVE_INFINITY;
+    bounds[b + 1] = Double.POSITIVE_INFINITY;
+    bounds[b + 2] = Double.NEGATIVE_INFINITY;
+    bounds[b + 3] = Double.NEGATIVE_INFINITY;
+
+    for(int i = 0; i < 8; i += 2) {
+      bounds[b] = Math.min(bounds[b], quad[i] + dx);
+      bounds[b + 1] = Math.min(bounds[b + 1], quad[i + 1] + dy);
+      bounds[b + 2] = Math.max(bounds[b + 2], quad[i] + dx);
+      bounds[b + 3] = Math.max(bounds[b + 3], quad[i + 1] + dy);
+    }
+
+    reflections[b] = reflectionFraction > 0 ? reflectionTop : 0;
+    reflections[b + 1] = Math.max(0, Math.min(1, reflectionFraction));
+    reflections[b + 2] = reflectionTopOpacity;
+    reflections[b + 3] = reflectionBottomOpacity;
+
+    opacities[quadCount] = opacity;
+    textures[quadCount++] = texture;
+  }
+
+  /**
+   * Renders all quads added since {@link #beginFrame}, using the given pool to render bands of
+   * the frame in parallel.
+   *
+   * @param pool a pool
+   */
+  public void render(ForkJoinPool pool) {
+    pool.invoke(new Band(0, height));
+  }
+
+  /**
+   * Returns the pixels of the last rendered frame as premultiplied ARGB values, row by row.
+   * The array may be larger than the frame.
+   *
+   * @return the pixels of the last rendered frame
+   */
+  public int[] getPixels() {
+    return pixels;
+  }
+
+  public int getWidth() {
+    return width;
+  }
+
+  public int getHeight() {
+    return height;
+  }
+
+  private class Band extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int fromRow;
+    private final int toRow;
+
+    Band(int fromRow, int toRow) {
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+    }
+
+    @Override
+    protected void compute() {
+      if(toRow - fromRow <= BAND_HEIGHT) {
+        renderBand(fromRow, toRow);
+      }
+      else {
+        int middle = (fromRow + toRow) >>> 1;
+
+        invokeAll(new Band(fromRow, middle), new Band(middle, toRow));
+      }
+    }
+  }
+
+  private void renderBand(int fromRow, int toRow) {
+    Arrays.fill(pixels, fromRow * width, toRow * width, background);
+
+    for(int i = 0; i < quadCount; i++) {
+      int b = i * 4;
+      int firstRow = Math.max(fromRow, (int)Math.floor(bounds[b + 1]));
+      int lastRow = Math.min(toRow - 1, (int)Math.ceil(bounds[b + 3]));
+      int firstColumn = Math.max(0, (int)Math.floor(bounds[b]));
+      int lastColumn = Math.min(width - 1, (int)Math.ceil(bounds[b + 2]));
+
+      for(int y = firstRow; y <= lastRow; y++) {
+        renderSpan(i, y, firstColumn, lastColumn);
+      }
+    }
+  }
+
+  /**
+   * Renders one row of a quad.  The inverse mapping is linear in x before the division, so
+   * it is stepped incrementally.
+   */
+  private void renderSpan(int quad, int y, int firstColumn, int lastColumn) {
+    Texture texture = textures[quad];
+    int m = quad * 9;
+    int r = quad * 4;
+
+    double py = y + 0.5;
+    double px = firstColumn + 0.5;
+    double u = mappings[m] * px + mappings[m + 1] * py + mappings[m + 2];
+    double v = mappings[m + 3] * px + mappings[m + 4] * py + mappings[m + 5];
+    double w = mappings[m + 6] * px + mappings[m + 7] * py + mappings[m + 8];
+
+    double reflectionTop = reflections[r];
+    double reflectionFraction = reflections[r + 1];
+    double textureHeight = texture.height;
+    double totalHeight = textureHeight * (reflectionFraction > 0 ? 1 + reflectionTop + reflectionFraction : 1);
+    double reflectionStart = textureHeight * (1 + reflectionTop);
+    double reflectionHeight = textureHeight * reflectionFraction;
+    double opacity = opacities[quad];
+
+    int offset = y * width;
+
+    for(int x = firstColumn; x <= lastColumn; x++, u += mappings[m], v += mappings[m + 3], w += mappings[m + 6]) {
+      if(w == 0) {
+        continue;
+      }
+
+      double tu = u / w;
+      double tv = v / w;
+
+      if(tu < 0 || tu >= 1 || tv < 0 || tv >= 1) {
+        continue;
+      }
+
+      int tx = (int)(tu * texture.width);
+      double ty = tv * totalHeight;
+      double alpha = opacity;
+      int row;
+
+      if(ty < textureHeight) {
+        row = (int)ty;
+      }
+      else if(ty >= reflectionStart && ty < reflectionStart + reflectionHeight) {
+        double distance = ty - reflectionStart;
+
+        row = texture.height - 1 - (int)distance;
+        alpha *= reflections[r + 2] + (reflections[r + 3] - reflections[r + 2]) * distance / reflectionHeight;
+      }
+      else {
+        continue;  // gap between texture and reflection
+      }
+
+      blend(offset + x, texture.pixels[row * texture.width + tx], alpha);
+    }
+  }
+
+  /**
+   * Blends a premultiplied source pixel over the frame with the given extra opacity.
+   */
+  private void blend(int index, int source, double alpha) {
+    int a256 = (int)(alpha * 256);
+
+    if(a256 <= 0 || source == 0) {
+      return;
+    }
+
+    if(a256 < 256) {
+      source = ((source >>> 24) * a256 >> 8) << 24
+             | (((source >> 16) & 0xff) * a256 >> 8) << 16
+             | (((source >> 8) & 0xff) * a256 >> 8) << 8
+             | ((source & 0xff) * a256 >> 8);
+    }
+
+    int inverse = 255 - (source >>> 24);
+
+    if(inverse == 0) {
+      pixels[index] = source;
+      return;
+    }
+
+    int destination = pixels[index];
+
+    pixels[index] = ((source >>> 24) + mul255(destination >>> 24, inverse)) << 24
+                  | (((source >> 16) & 0xff) + mul255((destination >> 16) & 0xff, inverse)) << 16
+                  | (((source >> 8) & 0xff) + mul255((destination >> 8) & 0xff, inverse)) << 8
+                  | ((source & 0xff) + mul255(destination & 0xff, inverse));
+  }
+
+  /**
+   * Computes the inverse of the projective mapping from the unit square to the given quad.
+   *
+   * @return false if the quad is degenerate
+   */
+  private boolean computeMapping(double[] quad, double dx, double dy, int index) {
+    double x0 = quad[0] + dx, y0 = quad[1] + dy;
+    double x1 = quad[2] + dx, y1 = quad[3] + dy;
+    double x2 = quad[4] + dx, y2 = quad[5] + dy;
+    double x3 = quad[6] + dx, y3 = quad[7] + dy;
+
+    double sx = x0 - x1 + x2 - x3;
+    double sy = y0 - y1 + y2 - y3;
+    double a, b, c, d, e, f, g, h;
+
+    if(sx == 0 && sy == 0) {  // parallelogram
+      a = x1 - x0;
+      b = x3 - x0;
+      c = x0;
+      d = y1 - y0;
+      e = y3 - y0;
+      f = y0;
+      g = 0;
+      h = 0;
+    }
+    else {
+      double dx1 = x1 - x2;
+      double dx2 = x3 - x2;
+      double dy1 = y1 - y2;
+      double dy2 = y3 - y2;
+      double denominator = dx1 * dy2 - dx2 * dy1;
+
+      if(denominator == 0) {
+        return false;
+      }
+
+      g = (sx * dy2 - dx2 * sy) / denominator;
+      h = (dx1 * sy - sx * dy1) / denominator;
+      a = x1 - x0 + g * x1;
+      b = x3 - x0 + h * x3;
+      c = x0;
+      d = y1 - y0 + g * y1;
+      e = y3 - y0 + h * y3;
+      f = y0;
+    }
+
+    double determinant = a * (e - f * h) - b * (d - f * g) + c * (d * h - e * g);
+
+    if(determinant == 0) {
+      return false;
+    }
+
+    int m = index * 9;
+
+    mappings[m] = e - f * h;
+    mappings[m + 1] = c * h - b;
+    mappings[m + 2] = b * f - c * e;
+    mappings[m + 3] = f * g - d;
+    mappings[m + 4] = a - c * g;
+    mappings[m + 5] = c * d - a * f;
+    mappings[m + 6] = d * h - e * g;
+    mappings[m + 7] = b * g - a * h;
+    mappings[m + 8] = a * e - b * d;
+
+    return true;
+  }
+
+  private static int mul255(int value, int factor) {
+    int x = value * factor + 128;
+
+    return (x + (x >> 8)) >> 8;
+  }
+}
@@ -0,0 +1,27 @@
+package hs.javafx.control;
+
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.ObservableList;
+
+/**
+ * A row of a {@link CarouselGrid}.  Holds the state of a row which must be kept while the
+ * row is not shown, which is only its items and its focused index.
+ *
+ * @param <T> the type of the items
+ */
+public class CarouselRow<T> {
+  private final ObjectProperty<ObservableList<T>> items = new SimpleObjectProperty<>(this, "items");
+  public final ObjectProperty<ObservableList<T>> itemsProperty() { return items; }
+  public final ObservableList<T> getItems() { return items.get(); }
+
+  private final IntegerProperty focusedIndex = new SimpleIntegerProperty(this, "focusedIndex");
+  public final IntegerProperty focusedIndexProperty() { return focusedIndex; }
+  public final int getFocusedIndex() { return focusedIndex.get(); }
+
+  public CarouselRow(ObservableList<T> items) {
+    this.items.set(items);
+  }
+}
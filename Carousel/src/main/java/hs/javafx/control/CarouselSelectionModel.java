@@ -0,0 +1,221 @@
+package hs.javafx.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.beans.value.WeakChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.WeakListChangeListener;
+
+/**
+ * Multiple selection model for a {@link Carousel}, suitable for very large lists.<p>
+ *
+ * Selected indices are kept in an {@link IndexRangeSet}, so the memory used depends on the
+ * number of selected ranges instead of the number of selected items.  Selecting all items
+ * takes constant time and selecting a range takes time logarithmic in the number of ranges.
+ * Selections follow the items when items are added, removed or permutated.<p>
+ *
+ * Changes are reported to {@link SelectionListener}s as ranges of indices.
+ *
+ * @param <T> the type of the items
+ */
+public class CarouselSelectionModel<T> {
+
+  /**
+   * Listener which is notified when the selected state of a range of indices may have changed.
+   */
+  public interface SelectionListener {
+
+    /**
+     * Called when the selected state of the given range of indices may have changed.
+     *
+     * @param from the first index, inclusive
+     * @param to the last index, exclusive
+     */
+    void selectionChanged(int from, int to);
+  }
+
+  private final Carousel<T> carousel;
+  private final IndexRangeSet selection = new IndexRangeSet();
+  private final List<SelectionListener> listeners = new ArrayList<>();
+
+  private final ChangeListener<ObservableList<T>> itemsListener = new ChangeListener<ObservableList<T>>() {
+    @Override
+    public void changed(ObservableValue<? extends ObservableList<T>> observableValue, ObservableList<T> old, ObservableList<T> current) {
+      if(old != null) {
+        old.removeListener(weakItemsContentListener);
+      }
+      if(current != null) {
+        current.addListener(weakItemsContentListener);
+      }
+
+      clearSelection();
+    }
+  };
+
+  private final WeakChangeListener<ObservableList<T>> weakItemsListener = new WeakChangeListener<>(this.itemsListener);
+
+  private final ListChangeListener<T> itemsContentListener = new ListChangeListener<T>() {
+    @Override
+    public void onChanged(ListChangeListener.Change<? extends T> change) {
+      if(selection.isEmpty()) {
+        return;
+      }
+
+      int firstChangedIndex = Integer.MAX_VALUE;
+
+      while(change.next()) {
+        int from = change.getFrom();
+
+        if(change.wasPermutated()) {
+          int[] permutation = new int[change.getTo() - from];
+
+          for(int i = from; i < change.getTo(); i++) {
+            permutation[i - from] = change.getPermutation(i);
+          }
+
+          selection.permute(from, change.getTo(), permutation);
+        }
+        else {
+          selection.delete(from, change.getRemovedSize());
+          selection.insert(from, change.getAddedSize());
+        }
+
+        firstChangedIndex = Math.min(firstChangedIndex, from);
+      }
+
+      if(firstChangedIndex != Integer.MAX_VALUE) {
+        fireSelectionChanged(firstChangedIndex, Integer.MAX_VALUE);
+      }
+    }
+  };
+
+  private final WeakListChangeListener<T> weakItemsContentListener = new WeakListChangeListener<>(this.itemsContentListener);
+
+  public CarouselSelectionModel(Carousel<T> carousel) {
+    if(carousel == null) {
+      throw new IllegalArgumentException("Carousel can not be null");
+    }
+
+    this.carousel = carousel;
+    this.carousel.itemsProperty().addListener(weakItemsListener);
+
+    if(carousel.getItems() != null) {
+      carousel.getItems().addListener(weakItemsContentListener);
+    }
+  }
+
+  public boolean isSelected(int index) {
+    return !selection.isEmpty() && selection.contains(index);
+  }
+
+  public boolean isEmpty() {
+    return selection.isEmpty();
+  }
+
+  /**
+   * Returns the number of selected items.
+   *
+   * @return the number of selected items
+   */
+  public int getSelectedCount() {
+    return (int)selection.size();
+  }
+
+  /**
+   * Returns the selected ranges as an unmodifiable map of start index (inclusive) to end index
+   * (exclusive), in ascending order.
+   *
+   * @return the selected ranges
+   */
+  public SortedMap<Integer, Integer> getSelectedRanges() {
+    return selection.getRanges();
+  }
+
+  public void select(int index) {
+    selectRange(index, index + 1);
+  }
+
+  /**
+   * Selects a range of items, in addition to the items already selected.
+   *
+   * @param from the index of the first item, inclusive
+   * @param to the index of the last item, exclusive
+   */
+  public void selectRange(int from, int to) {
+    from = Math.max(0, from);
+    to = Math.min(getItemCount(), to);
+
+    if(from < to) {
+      selection.add(from, to);
+      fireSelectionChanged(from, to);
+    }
+  }
+
+  public void selectAll() {
+    int itemCount = getItemCount();
+
+    if(itemCount > 0) {
+      selection.set(0, itemCount);
+      fireSelectionChanged(0, itemCount);
+    }
+  }
+
+  public void clearSelection(int index) {
+    clearSelection(index, index + 1);
+  }
+
+  /**
+   * Deselects a range of items.
+   *
+   * @param from the index of the first item, inclusive
+   * @param to the index of the last item, exclusive
+   */
+  public void clearSelection(int from, int to) {
+    if(from < to && !selection.isEmpty()) {
+      selection.remove(from, to);
+      fireSelectionChanged(from, to);
+    }
+  }
+
+  public void clearSelection() {
+    if(!selection.isEmpty()) {
+      int from = selection.getRanges().firstKey();
+      int to = selection.getRanges().get(selection.getRanges().lastKey());
+
+      selection.clear();
+      fireSelectionChanged(from, to);
+    }
+  }
+
+  public void toggleSelection(int index) {
+    if(isSelected(index)) {
+      clearSelection(index);
+    }
+    else {
+      select(index);
+    }
+  }
+
+  public void addSelectionListener(SelectionListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeSelectionListener(SelectionListener listener) {
+    listeners.remove(listener);
+  }
+
+  private void fireSelectionChanged(int from, int to) {
+    for(SelectionListener listener : new ArrayList<>(listeners)) {
+      listener.selectionChanged(from, to);
+    }
+  }
+
+  private int getItemCount() {
+    return carousel.getItems() == null ? 0 : carousel.getItems().size();
+  }
+}
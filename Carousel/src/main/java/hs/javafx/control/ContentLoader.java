@@ -0,0 +1,142 @@
+package hs.javafx.control;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.application.Platform;
+import javafx.util.Callback;
+
+/**
+ * Pool of background threads which loads the content of cells, for example images.<p>
+ *
+ * Carousels share a loader by default, so the number of loading threads does not depend on
+ * the number of carousels shown.  Tasks submitted last are started first; content requested
+ * for cells which are on screen right now is then loaded before content requested for cells
+ * which have since scrolled out of view.  Callers should cancel the returned {@link Future}
+ * when the content is no longer needed.
+ */
+public class ContentLoader {
+  private static final ContentLoader DEFAULT = new ContentLoader(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+  /**
+   * Returns the loader shared by all carousels which have no loader of their own.
+   *
+   * @return the loader shared by all carousels which have no loader of their own
+   */
+  public static ContentLoader getDefault() {
+    return DEFAULT;
+  }
+
+  private final ThreadPoolExecutor executor;
+
+  public ContentLoader(int threadCount) {
+    if(threadCount < 1) {
+      throw new IllegalArgumentException("threadCount must be positive: " + threadCount);
+    }
+
+    BlockingQueue<Runnable> queue = new LinkedBlockingDeque<Runnable>() {
+      @Override
+      public boolean offer(Runnable runnable) {
+        return offerFirst(runnable);  // last in, first out
+      }
+    };
+
+    final AtomicInteger threadNumber = new AtomicInteger();
+
+    executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS, queue, new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "ContentLoader-" + threadNumber.incrementAndGet());
+
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Runs the given task on a background thread, and passes its result to the given callback
+   * on the JavaFX Application Thread.  If the task fails, the exception it threw is passed to
+   * the given failure callback on the JavaFX Application Thread instead.  Neither callback is
+   * called if the task was cancelled.
+   *
+   * @param task a task which loads content
+   * @param onLoaded a callback which receives the loaded content, can be null
+   * @param onFailed a callback which receives the exception thrown by the task, can be null
+   * @return a {@link Future} which can be used to cancel the task
+   */
+  public <V> Future<V> load(Callable<V> task, final Callback<V, Void> onLoaded, final Callback<Throwable, Void> onFailed) {
+    FutureTask<V> futureTask = new FutureTask<V>(task) {
+      @Override
+      protected void done() {
+        if(isCancelled()) {
+          return;
+        }
+
+        try {
+          final V value = get();
+
+          if(onLoaded != null) {
+            Platform.runLater(new Runnable() {
+              @Override
+              public void run() {
+                if(!isCancelled()) {
+                  onLoaded.call(value);
+                }
+              }
+            });
+          }
+        }
+        catch(final ExecutionException e) {
+          if(onFailed != null) {
+            Platform.runLater(new Runnable() {
+              @Override
+              public void run() {
+                if(!isCancelled()) {
+                  onFailed.call(e.getCause());
+                }
+              }
+            });
+          }
+        }
+        catch(InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    executor.execute(futureTask);
+
+    return futureTask;
+  }
+
+  /**
+   * Stops all threads of this loader.  Tasks which did not start yet are discarded.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Waits until all threads of this loader have stopped after {@link #shutdown()}, so the
+   * resources used by its tasks can be released safely.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @return true if all threads stopped, false if the timeout elapsed first
+   * @throws InterruptedException when interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return executor.awaitTermination(timeout, unit);
+  }
+}
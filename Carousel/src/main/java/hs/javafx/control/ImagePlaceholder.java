@@ -0,0 +1,204 @@
+package hs.javafx.control;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+
+/**
+ * A tiny summary of an image, consisting of its size and the average colours of a 4x4 grid
+ * over the image, which can be shown instead of the image while it is not loaded.<p>
+ *
+ * A placeholder takes {@value #BYTE_COUNT} bytes, so it can be computed once and kept with
+ * the item or stored alongside its thumbnail, see {@link ThumbnailStore#getPlaceholder(java.io.File, int)}.
+ * Cells which are {@link CarouselCell#scrubbingProperty() scrubbing} can show {@link #toImage()}
+ * instead of loading the full image.
+ */
+public final class ImagePlaceholder {
+  private static final int GRID_SIZE = 4;
+  private static final int IMAGE_SIZE = 16;  // size of the longest side of the image created from the grid
+
+  /**
+   * The number of bytes of a placeholder: the width and height of the image as unsigned
+   * shorts, followed by the red, green and blue components of each grid cell, row by row.
+   */
+  public static final int BYTE_COUNT = 4 + GRID_SIZE * GRID_SIZE * 3;
+
+  private final byte[] data;
+
+  private WritableImage image;
+
+  /**
+   * Creates a placeholder from its bytes, as returned by {@link #toBytes()}.
+   *
+   * @param data the bytes of a placeholder
+   */
+  public ImagePlaceholder(byte[] data) {
+    if(data == null || data.length != BYTE_COUNT) {
+      throw new IllegalArgumentException("data must be " + BYTE_COUNT + " bytes");
+    }
+
+    this.data = data.clone();
+  }
+
+  /**
+   * Computes the placeholder of an image.
+   *
+   * @param image a fully loaded image
+   * @return the placeholder of the given image
+   */
+  public static ImagePlaceholder of(Image image) {
+    PixelReader reader = image.getPixelReader();
+    int width = (int)image.getWidth();
+    int height = (int)image.getHeight();
+
+    if(reader == null || width == 0 || height == 0) {
+      throw new IllegalArgumentException("image must be fully loaded");
+    }
+
+    WritablePixelFormat<IntBuffer> format = PixelFormat.getIntArgbPreInstance();
+    int[] pixels = new int[width * height];
+
+    reader.getPixels(0, 0, width, height, format, pixels, 0, width);
+
+    return of(pixels, width, height);
+  }
+
+  /**
+   * Computes the placeholder of an image given as premultiplied ARGB pixels.
+   *
+   * @param pixels the pixels of the image, row by row
+   * @param width the width of the image
+   * @param height the height of the image
+   * @return the placeholder of the given image
+   */
+  public static ImagePlaceholder of(int[] pixels, int width, int height) {
+    byte[] data = new byte[BYTE_COUNT];
+
+    data[0] = (byte)(Math.min(width, 0xffff) >> 8);
+    data[1] = (byte)Math.min(width, 0xffff);
+    data[2] = (byte)(Math.min(height, 0xffff) >> 8);
+    data[3] = (byte)Math.min(height, 0xffff);
+
+    for(int gy = 0; gy < GRID_SIZE; gy++) {
+      for(int gx = 0; gx < GRID_SIZE; gx++) {
+        long a = 0;
+        long r = 0;
+        long g = 0;
+        long b = 0;
+
+        for(int y = gy * height / GRID_SIZE; y < (gy + 1) * height / GRID_SIZE; y++) {
+          for(int x = gx * width / GRID_SIZE; x < (gx + 1) * width / GRID_SIZE; x++) {
+            int pixel = pixels[y * width + x];
+
+            a += pixel >>> 24;
+            r += (pixel >> 16) & 0xff;
+            g += (pixel >> 8) & 0xff;
+            b += pixel & 0xff;
+          }
+        }
+
+        int i = 4 + (gy * GRID_SIZE + gx) * 3;
+
+        /*
+         * The components are premultiplied, so dividing their sums by the sum of the alphas
+         * gives the average colour of the visible pixels.
+         */
+
+        if(a > 0) {
+          data[i] = (byte)Math.min(255, r * 255 / a);
+          data[i + 1] = (byte)Math.min(255, g * 255 / a);
+          data[i + 2] = (byte)Math.min(255, b * 255 / a);
+        }
+      }
+    }
+
+    return new ImagePlaceholder(data);
+  }
+
+  public int getWidth() {
+    return ((data[0] & 0xff) << 8) | (data[1] & 0xff);
+  }
+
+  public int getHeight() {
+    return ((data[2] & 0xff) << 8) | (data[3] & 0xff);
+  }
+
+  /**
+   * Returns the bytes of this placeholder, which can be stored and turned into a placeholder
+   * again with {@link #ImagePlaceholder(byte[])}.
+   *
+   * @return the bytes of this placeholder
+   */
+  public byte[] toBytes() {
+    return data.clone();
+  }
+
+  /**
+   * Returns a small, blurred image with the aspect ratio of the original image, created by
+   * interpolating between the colours of the grid.  It is meant to be scaled up to the size
+   * of the original image.  Must be called on the JavaFX Application Thread.
+   *
+   * @return a small, blurred image with the aspect ratio of the original image
+   */
+  public Image toImage() {
+    if(image == null) {
+      int width = getWidth();
+      int height = getHeight();
+      int w = width >= height ? IMAGE_SIZE : Math.max(1, IMAGE_SIZE * width / Math.max(1, height));
+      int h = height >= width ? IMAGE_SIZE : Math.max(1, IMAGE_SIZE * height / Math.max(1, width));
+      int[] pixels = new int[w * h];
+
+      for(int y = 0; y < h; y++) {
+        double gy = Math.max(0, Math.min(GRID_SIZE - 1, (y + 0.5) * GRID_SIZE / h - 0.5));
+
+        for(int x = 0; x < w; x++) {
+          double gx = Math.max(0, Math.min(GRID_SIZE - 1, (x + 0.5) * GRID_SIZE / w - 0.5));
+
+          pixels[y * w + x] = 0xff000000 | interpolate(gx, gy, 0) << 16 | interpolate(gx, gy, 1) << 8 | interpolate(gx, gy, 2);
+        }
+      }
+
+      image = new WritableImage(w, h);
+      image.getPixelWriter().setPixels(0, 0, w, h, PixelFormat.getIntArgbInstance(), pixels, 0, w);
+    }
+
+    return image;
+  }
+
+  /**
+   * Bilinearly interpolates a colour component between the four grid cells surrounding the
+   * given grid position.
+   */
+  private int interpolate(double gx, double gy, int component) {
+    int x0 = (int)gx;
+    int y0 = (int)gy;
+    int x1 = Math.min(GRID_SIZE - 1, x0 + 1);
+    int y1 = Math.min(GRID_SIZE - 1, y0 + 1);
+    double fx = gx - x0;
+    double fy = gy - y0;
+
+    double top = component(x0, y0, component) * (1 - fx) + component(x1, y0, component) * fx;
+    double bottom = component(x0, y1, component) * (1 - fx) + component(x1, y1, component) * fx;
+
+    return (int)Math.round(top * (1 - fy) + bottom * fy);
+  }
+
+  private int component(int gx, int gy, int component) {
+    return data[4 + (gy * GRID_SIZE + gx) * 3 + component] & 0xff;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof ImagePlaceholder && Arrays.equals(data, ((ImagePlaceholder)obj).data);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(data);
+  }
+}
@@ -0,0 +1,167 @@
+package hs.javafx.control;
+
+import java.nio.IntBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+
+/**
+ * An image together with a number of pre-scaled versions of it, each half the size of the
+ * previous one.<p>
+ *
+ * Cells showing images can use the level matching their {@link CarouselCell#levelOfDetailProperty()},
+ * so cells which are projected small are drawn from small textures.  The full size level
+ * should be loaded at the size of the largest cell ({@link Carousel#getMaxCellHeight()}),
+ * multiplied by the output scale of the screen, as JavaFX does not expose the output scale.<p>
+ *
+ * The smaller levels are created from the full size image with a box filter when they are
+ * first requested.  Only the {@value #MAX_CACHED_LEVELS} most recently requested smaller
+ * levels are kept, which is the level in use and the one used before it while a cell moves
+ * from one level to the next, so a pyramid takes little more memory than its full size image.
+ */
+public class ImagePyramid {
+
+  /**
+   * The number of levels: full size, 1/2, 1/4 and 1/8.
+   */
+  public static final int LEVEL_COUNT = 4;
+
+  /**
+   * The maximum number of smaller levels kept in addition to the full size image.
+   */
+  private static final int MAX_CACHED_LEVELS = 2;
+
+  private final Image image;
+  private final Map<Integer, Image> cachedLevels = new LinkedHashMap<Integer, Image>(4, 0.75f, true) {  // least recently used first
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+      return size() > MAX_CACHED_LEVELS;
+    }
+  };
+
+  /**
+   * Creates a pyramid for the given image.  If the pixels of the image cannot be read, for
+   * example because it is still loading, all levels use the given image.
+   *
+   * @param image the full size image
+   */
+  public ImagePyramid(Image image) {
+    this.image = image;
+  }
+
+  /**
+   * Returns the image of the given level, where level 0 is the full size image.  Smaller
+   * levels are created if they are not cached.
+   *
+   * @param level a level, clamped to the available levels
+   * @return the image of the given level
+   */
+  public synchronized Image getLevel(int level) {
+    int clampedLevel = Math.max(0, Math.min(LEVEL_COUNT - 1, level));
+
+    if(clampedLevel == 0) {
+      return image;
+    }
+
+    Image levelImage = cachedLevels.get(clampedLevel);
+
+    if(levelImage == null) {
+      levelImage = downsample(image, 1 << clampedLevel);
+      cachedLevels.put(clampedLevel, levelImage);
+    }
+
+    return levelImage;
+  }
+
+  /**
+   * Returns the smallest level which still has at least as many pixels as the given projected
+   * height requires.
+   *
+   * @param projectedHeight the height at which the image is shown
+   * @param fullHeight the height at which the full size level is shown at its natural size
+   * @return the level to use for the given projected height
+   */
+  public static int toLevel(double projectedHeight, double fullHeight) {
+    if(projectedHeight <= 0 || fullHeight <= 0) {
+      return LEVEL_COUNT - 1;
+    }
+
+    int level = (int)Math.floor(Math.log(fullHeight / projectedHeight) / Math.log(2));
+
+    return Math.max(0, Math.min(LEVEL_COUNT - 1, level));
+  }
+
+  /**
+   * Reduces the size of an image by the given factor by averaging each block of factor x
+   * factor pixels.  The pixels are averaged premultiplied, so the colours of transparent pixels
+   * do not bleed into their neighbours.
+   *
+   * @param image an image
+   * @param factor the factor by which to reduce the size, a power of two
+   * @return an image reduced in size, or the given image if it cannot be made smaller
+   */
+  private static Image downsample(Image image, int factor) {
+    PixelReader reader = image.getPixelReader();
+    int width = (int)image.getWidth();
+    int height = (int)image.getHeight();
+
+    while(factor > 1 && (width < factor || height < factor)) {
+      factor /= 2;
+    }
+
+    if(reader == null || factor < 2) {
+      return image;
+    }
+
+    int targetWidth = width / factor;
+    int targetHeight = height / factor;
+    int blockSize = factor * factor;
+    int[] source = new int[width * factor];
+    int[] target = new int[targetWidth];
+    long[] sums = new long[targetWidth * 4];
+    WritablePixelFormat<IntBuffer> format = PixelFormat.getIntArgbPreInstance();
+    WritableImage result = new WritableImage(targetWidth, targetHeight);
+
+    for(int y = 0; y < targetHeight; y++) {
+      reader.getPixels(0, y * factor, width, factor, format, source, 0, width);
+
+      for(int i = 0; i < sums.length; i++) {
+        sums[i] = 0;
+      }
+
+      for(int row = 0; row < factor; row++) {
+        for(int x = 0; x < targetWidth * factor; x++) {
+          int pixel = source[row * width + x];
+          int s = x / factor * 4;
+
+          sums[s] += pixel >>> 24;
+          sums[s + 1] += (pixel >> 16) & 0xff;
+          sums[s + 2] += (pixel >> 8) & 0xff;
+          sums[s + 3] += pixel & 0xff;
+        }
+      }
+
+      for(int x = 0; x < targetWidth; x++) {
+        int s = x * 4;
+
+        target[x] = average(sums[s], blockSize) << 24
+                  | average(sums[s + 1], blockSize) << 16
+                  | average(sums[s + 2], blockSize) << 8
+                  | average(sums[s + 3], blockSize);
+      }
+
+      result.getPixelWriter().setPixels(0, y, targetWidth, 1, format, target, 0, targetWidth);
+    }
+
+    return result;
+  }
+
+  private static int average(long sum, int count) {
+    return (int)((sum + count / 2) / count);
+  }
+}
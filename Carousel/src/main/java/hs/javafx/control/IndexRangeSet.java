@@ -0,0 +1,279 @@
+package hs.javafx.control;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A set of non-negative indices, stored as sorted, non-overlapping and non-adjacent ranges.<p>
+ *
+ * Memory use and the cost of most operations depend on the number of ranges rather than on
+ * the number of indices in the set.  Adding or removing a range takes time logarithmic in the
+ * number of ranges (plus the number of ranges merged or removed), and replacing the contents
+ * with a single range takes constant time.
+ */
+public class IndexRangeSet {
+  private final TreeMap<Integer, Integer> ranges = new TreeMap<>();  // start -> end (exclusive)
+  private final SortedMap<Integer, Integer> unmodifiableRanges = Collections.unmodifiableSortedMap(ranges);
+
+  private long count;
+
+  /**
+   * Returns whether the given index is part of this set.
+   *
+   * @param index an index
+   * @return true if the given index is part of this set, false otherwise
+   */
+  public boolean contains(int index) {
+    if(ranges.isEmpty()) {
+      return false;
+    }
+
+    Map.Entry<Integer, Integer> entry = ranges.floorEntry(index);
+
+    return entry != null && index < entry.getValue();
+  }
+
+  public boolean isEmpty() {
+    return ranges.isEmpty();
+  }
+
+  /**
+   * Returns the number of indices in this set.
+   *
+   * @return the number of indices in this set
+   */
+  public long size() {
+    return count;
+  }
+
+  /**
+   * Returns the ranges of this set as an unmodifiable map of start index (inclusive) to end
+   * index (exclusive), in ascending order.
+   *
+   * @return the ranges of this set
+   */
+  public SortedMap<Integer, Integer> getRanges() {
+    return unmodifiableRanges;
+  }
+
+  public void clear() {
+    ranges.clear();
+    count = 0;
+  }
+
+  /**
+   * Replaces the contents of this set with a single range.
+   *
+   * @param from the first index, inclusive
+   * @param to the last index, exclusive
+   */
+  public void set(int from, int to) {
+    clear();
+
+    if(from < to) {
+      ranges.put(from, to);
+      count = to - from;
+    }
+  }
+
+  /**
+   * Adds a range of indices to this set.
+   *
+   * @param from the first index, inclusive
+   * @param to the last index, exclusive
+   */
+  public void add(int from, int to) {
+    if(from >= to) {
+      return;
+    }
+
+    Map.Entry<Integer, Integer> floor = ranges.floorEntry(from);
+
+    if(floor != null && floor.getValue() >= from) {
+      from = floor.getKey();
+      to = Math.max(to, floor.getValue());
+    }
+
+    /*
+     * Absorb all ranges starting within or directly after the new range.
+     */
+
+    NavigableMap<Integer, Integer> absorbed = ranges.subMap(from, true, to, true);
+
+    for(Map.Entry<Integer, Integer> entry : absorbed.entrySet()) {
+      to = Math.max(to, entry.getValue());
+      count -= entry.getValue() - entry.getKey();
+    }
+
+    absorbed.clear();
+    ranges.put(from, to);
+    count += to - from;
+  }
+
+  /**
+   * Removes a range of indices from this set.
+   *
+   * @param from the first index, inclusive
+   * @param to the last index, exclusive
+   */
+  public void remove(int from, int to) {
+    if(from >= to || ranges.isEmpty()) {
+      return;
+    }
+
+    Map.Entry<Integer, Integer> floor = ranges.lowerEntry(from);
+
+    if(floor != null && floor.getValue() > from) {  // split range overlapping the start
+      ranges.put(floor.getKey(), from);
+      count -= floor.getValue() - from;
+
+      if(floor.getValue() > to) {
+        ranges.put(to, floor.getValue());
+        count += floor.getValue() - to;
+        return;
+      }
+    }
+
+    NavigableMap<Integer, Integer> removed = ranges.subMap(from, true, to, false);
+    Integer remainingEnd = null;
+
+    for(Map.Entry<Integer, Integer> entry : removed.entrySet()) {
+      count -= entry.getValue() - entry.getKey();
+
+      if(entry.getValue() > to) {
+        remainingEnd = entry.getValue();
+      }
+    }
+
+    removed.clear();
+
+    if(remainingEnd != null) {
+      ranges.put(to, remainingEnd);
+      count += remainingEnd - to;
+    }
+  }
+
+  /**
+   * Adjusts this set for the insertion of indices.  Indices at or after the insertion point are
+   * shifted up; the inserted indices are not part of the set.
+   *
+   * @param index the index at which indices were inserted
+   * @param insertedCount the number of inserted indices
+   */
+  public void insert(int index, int insertedCount) {
+    if(insertedCount <= 0) {
+      return;
+    }
+
+    Map.Entry<Integer, Integer> floor = ranges.lowerEntry(index);
+
+    if(floor != null && floor.getValue() > index) {  // split range containing the insertion point
+      ranges.put(floor.getKey(), index);
+      ranges.put(index, floor.getValue());
+    }
+
+    shift(index, insertedCount);
+  }
+
+  /**
+   * Adjusts this set for the deletion of indices.  Deleted indices are removed from the set
+   * and indices after the deleted indices are shifted down.
+   *
+   * @param index the index of the first deleted index
+   * @param deletedCount the number of deleted indices
+   */
+  public void delete(int index, int deletedCount) {
+    if(deletedCount <= 0) {
+      return;
+    }
+
+    remove(index, index + deletedCount);
+    shift(index + deletedCount, -deletedCount);
+
+    /*
+     * Merge the ranges on either side of the deletion point if they now touch.
+     */
+
+    Map.Entry<Integer, Integer> floor = ranges.lowerEntry(index);
+    Integer end = ranges.get(index);
+
+    if(floor != null && end != null && floor.getValue() == index) {
+      ranges.remove(index);
+      ranges.put(floor.getKey(), end);
+    }
+  }
+
+  /**
+   * Adjusts this set for a permutation of the indices in the given range.  The indices within
+   * the range are collected and the ranges covering the range are rebuilt in a single pass.
+   *
+   * @param from the first permuted index, inclusive
+   * @param to the last permuted index, exclusive
+   * @param permutation the new index of each index in the range, at the position of the index minus {@code from}
+   */
+  public void permute(int from, int to, int[] permutation) {
+    if(from >= to || ranges.isEmpty()) {
+      return;
+    }
+    if(permutation.length < to - from) {
+      throw new IllegalArgumentException("permutation must have " + (to - from) + " elements: " + permutation.length);
+    }
+
+    boolean[] contained = new boolean[to - from];
+    Integer firstKey = ranges.floorKey(from);
+
+    for(Map.Entry<Integer, Integer> entry : ranges.subMap(firstKey == null ? from : firstKey, true, to, false).entrySet()) {
+      for(int i = Math.max(from, entry.getKey()); i < Math.min(to, entry.getValue()); i++) {
+        int newIndex = permutation[i - from];
+
+        if(newIndex < from || newIndex >= to) {
+          throw new IllegalArgumentException("permutation moves " + i + " outside of the range: " + newIndex);
+        }
+
+        contained[newIndex - from] = true;
+      }
+    }
+
+    remove(from, to);
+
+    for(int i = 0; i < contained.length; i++) {
+      if(contained[i]) {
+        int start = i;
+
+        while(i + 1 < contained.length && contained[i + 1]) {
+          i++;
+        }
+
+        add(from + start, from + i + 1);
+      }
+    }
+  }
+
+  /**
+   * Shifts all ranges starting at or after the given index.
+   */
+  private void shift(int index, int delta) {
+    NavigableMap<Integer, Integer> tail = ranges.tailMap(index, true);
+    int[] shifted = new int[tail.size() * 2];
+    int i = 0;
+
+    for(Map.Entry<Integer, Integer> entry : tail.entrySet()) {
+      shifted[i++] = entry.getKey() + delta;
+      shifted[i++] = entry.getValue() + delta;
+    }
+
+    tail.clear();
+
+    for(i = 0; i < shifted.length; i += 2) {
+      ranges.put(shifted[i], shifted[i + 1]);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return ranges.toString();
+  }
+}
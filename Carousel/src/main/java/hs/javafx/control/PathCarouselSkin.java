@@ -0,0 +1,175 @@
+package hs.javafx.control;
+
+import java.util.List;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.scene.effect.PerspectiveTransform;
+import javafx.scene.effect.Reflection;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Shape;
+
+/**
+ * Skin which places the cells along an arbitrary {@link CarouselPath}.<p>
+ *
+ * The path is projected into a {@link PathLookupTable} whenever the path, the size of the
+ * carousel or the projection settings change.  Laying out a cell then only involves two table
+ * lookups, one for each vertical edge of the cell, regardless of the shape of the path.
+ */
+public class PathCarouselSkin<T> extends AbstractCarouselSkin<T> {
+  private final ObjectProperty<CarouselPath> path = new SimpleObjectProperty<CarouselPath>(this, "path", CarouselPath.ARC);
+  public final ObjectProperty<CarouselPath> pathProperty() { return path; }
+  public final CarouselPath getPath() { return path.get(); }
+  public final void setPath(CarouselPath path) { this.path.set(path); }
+
+  private final PathLookupTable lookupTable = new PathLookupTable();
+  private final double[] left = new double[3];
+  private final double[] right = new double[3];
+  private final double[] reflection = new double[5];
+  private final double[] hitQuad = new double[8];
+
+  private boolean lookupTableValid;
+
+  private final InvalidationListener lookupTableInvalidationListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      lookupTableValid = false;
+      requestLayout();
+    }
+  };
+
+  private final InvalidationListener invalidationListener = new InvalidationListener() {
+    @Override
+    public void invalidated(Observable observable) {
+      requestLayout();
+    }
+  };
+
+  public PathCarouselSkin(final Carousel<T> carousel) {
+    super(carousel);
+
+    path.addListener(lookupTableInvalidationListener);
+    carousel.widthProperty().addListener(lookupTableInvalidationListener);
+    carousel.heightProperty().addListener(lookupTableInvalidationListener);
+    carousel.fieldOfViewRatioProperty().addListener(lookupTableInvalidationListener);
+    carousel.viewDistanceRatioProperty().addListener(lookupTableInvalidationListener);
+
+    carousel.cellAlignmentProperty().addListener(invalidationListener);
+    carousel.reflectionEnabledProperty().addListener(invalidationListener);
+    carousel.clipReflectionsProperty().addListener(invalidationListener);
+  }
+
+  @Override
+  public void dispose() {
+    Carousel<T> carousel = getSkinnable();
+
+    carousel.widthProperty().removeListener(lookupTableInvalidationListener);
+    carousel.heightProperty().removeListener(lookupTableInvalidationListener);
+    carousel.fieldOfViewRatioProperty().removeListener(lookupTableInvalidationListener);
+    carousel.viewDistanceRatioProperty().removeListener(lookupTableInvalidationListener);
+
+    carousel.cellAlignmentProperty().removeListener(invalidationListener);
+    carousel.reflectionEnabledProperty().removeListener(invalidationListener);
+    carousel.clipReflectionsProperty().removeListener(invalidationListener);
+
+    super.dispose();
+  }
+
+  @Override
+  protected void prepareLayout(List<CarouselCell<T>> cells) {
+    if(!lookupTableValid) {
+      Carousel<T> carousel = getSkinnable();
+      double width = carousel.getWidth();
+
+      lookupTable.build(getPath(), width, carousel.getHeight(), width * carousel.getViewDistanceRatio(), width * carousel.getFieldOfViewRatio());
+      lookupTableValid = true;
+    }
+  }
+
+  @Override
+  public Shape layoutCell(CarouselCell<T> cell, double index) {
+    double w = getCellPrefWidth(cell);
+    double h = getCellPrefHeight(cell);
+    double length = lookupTable.getLength();
+
+    double u = 0.5 - index / getVisibleCellsCount();
+    double halfWidth = length > 0 ? w * 0.5 / length : 0;
+
+    if(u + halfWidth < 0 || u - halfWidth > 1) {
+      hideCell(cell);  // beyond the ends of the path
+      return null;
+    }
+
+    lookupTable.lookup(u - halfWidth, left);
+    lookupTable.lookup(u + halfWidth, right);
+
+    Carousel<T> carousel = getSkinnable();
+    double maxCellHeight = carousel.getMaxCellHeight();
+    boolean hasReflection = carousel.getReflectionEnabled() && CarouselGeometry.computeReflection(h, maxCellHeight, carousel.getCellAlignment(), reflection);
+
+    double cw = w / 2;
+    double ch = h / 2;
+    double uy = -maxCellHeight * 0.5 + (maxCellHeight - h) * carousel.getCellAlignment();
+    double ly = uy + h + (hasReflection ? reflection[4] : 0);
+
+    double lx = left[0] + cw;
+    double rx = right[0] + cw;
+    double lly = left[1] + ly * left[2] + ch;
+    double lry = right[1] + ly * right[2] + ch;
+
+    PerspectiveTransform perspectiveTransform = cell.getEffect() instanceof PerspectiveTransform ? (PerspectiveTransform)cell.getEffect() : new PerspectiveTransform();
+
+    perspectiveTransform.setUlx(lx);
+    perspectiveTransform.setUly(left[1] + uy * left[2] + ch);
+    perspectiveTransform.setUrx(rx);
+    perspectiveTransform.setUry(right[1] + uy * right[2] + ch);
+    perspectiveTransform.setLrx(rx);
+    perspectiveTransform.setLry(lry);
+    perspectiveTransform.setLlx(lx);
+    perspectiveTransform.setLly(lly);
+
+    if(hasReflection) {
+      Reflection effect = perspectiveTransform.getInput() instanceof Reflection ? (Reflection)perspectiveTransform.getInput() : new Reflection();
+
+      effect.setTopOffset(reflection[0]);
+      effect.setFraction(reflection[1]);
+      effect.setTopOpacity(reflection[2]);
+      effect.setBottomOpacity(reflection[3]);
+
+      perspectiveTransform.setInput(effect);
+    }
+    else {
+      perspectiveTransform.setInput(null);
+    }
+
+    cell.setEffect(perspectiveTransform);
+
+    double by = uy + h;
+
+    hitQuad[0] = lx;
+    hitQuad[1] = perspectiveTransform.getUly();
+    hitQuad[2] = rx;
+    hitQuad[3] = perspectiveTransform.getUry();
+    hitQuad[4] = rx;
+    hitQuad[5] = right[1] + by * right[2] + ch;
+    hitQuad[6] = lx;
+    hitQuad[7] = left[1] + by * left[2] + ch;
+
+    setHitQuad(cell, hitQuad);
+
+    if(!hasReflection || !carousel.getClipReflections()) {
+      return null;
+    }
+
+    double ry = uy + h + reflection[0];
+
+    return new Polygon(
+      lx, left[1] + ry * left[2] + ch,
+      rx, right[1] + ry * right[2] + ch,
+      rx, lry,
+      lx, lly
+    );
+  }
+}
@@ -0,0 +1,130 @@
+package hs.javafx.control;
+
+/**
+ * Lookup table of a projected {@link CarouselPath}, parameterized by arc length.<p>
+ *
+ * The path is sampled once when the table is built.  Each entry holds the projected position
+ * relative to the center of the carousel, the tangent of the projected path and the scale
+ * factor of the projection at that point.  Entries are spaced evenly along the length of the
+ * path in world space, so cells placed at even intervals of the table parameter are spaced
+ * evenly along the path.  Lookups interpolate the position with cubic Hermite splines using
+ * the tangents, and the scale linearly.
+ */
+class PathLookupTable {
+  private static final int SAMPLES = 1024;
+  private static final int SIZE = 256;
+  private static final double MIN_DEPTH = 1;
+
+  private final double[] x = new double[SIZE];
+  private final double[] y = new double[SIZE];
+  private final double[] tangentX = new double[SIZE];
+  private final double[] tangentY = new double[SIZE];
+  private final double[] scale = new double[SIZE];
+
+  private double length;
+
+  /**
+   * Builds the table.
+   *
+   * @param path a path
+   * @param width the width of the carousel
+   * @param height the height of the carousel
+   * @param viewDistance the distance of the viewer to the plane at z = 0
+   * @param fov the field of view factor of the projection
+   */
+  public void build(CarouselPath path, double width, double height, double viewDistance, double fov) {
+    double[] point = new double[3];
+    double[] sampleX = new double[SAMPLES];
+    double[] sampleY = new double[SAMPLES];
+    double[] sampleZ = new double[SAMPLES];
+    double[] distance = new double[SAMPLES];
+
+    for(int i = 0; i < SAMPLES; i++) {
+      path.evaluate((double)i / (SAMPLES - 1), point);
+
+      sampleX[i] = point[0] * width;
+      sampleY[i] = point[1] * height;
+      sampleZ[i] = point[2] * width;
+
+      if(i > 0) {
+        double dx = sampleX[i] - sampleX[i - 1];
+        double dy = sampleY[i] - sampleY[i - 1];
+        double dz = sampleZ[i] - sampleZ[i - 1];
+
+        distance[i] = distance[i - 1] + Math.sqrt(dx * dx + dy * dy + dz * dz);
+      }
+    }
+
+    length = distance[SAMPLES - 1];
+
+    /*
+     * Resample at even distances along the path and project the results.
+     */
+
+    int sample = 0;
+
+    for(int k = 0; k < SIZE; k++) {
+      double target = length * k / (SIZE - 1);
+
+      while(sample < SAMPLES - 2 && distance[sample + 1] < target) {
+        sample++;
+      }
+
+      double segmentLength = distance[sample + 1] - distance[sample];
+      double f = segmentLength > 0 ? Math.min(1, (target - distance[sample]) / segmentLength) : 0;
+
+      double wx = sampleX[sample] + (sampleX[sample + 1] - sampleX[sample]) * f;
+      double wy = sampleY[sample] + (sampleY[sample + 1] - sampleY[sample]) * f;
+      double wz = sampleZ[sample] + (sampleZ[sample + 1] - sampleZ[sample]) * f;
+
+      scale[k] = fov / Math.max(MIN_DEPTH, wz + viewDistance);
+      x[k] = wx * scale[k];
+      y[k] = wy * scale[k];
+    }
+
+    /*
+     * Tangents per table entry, using central differences.
+     */
+
+    for(int k = 0; k < SIZE; k++) {
+      int previous = Math.max(0, k - 1);
+      int next = Math.min(SIZE - 1, k + 1);
+
+      tangentX[k] = (x[next] - x[previous]) / (next - previous);
+      tangentY[k] = (y[next] - y[previous]) / (next - previous);
+    }
+  }
+
+  /**
+   * Returns the length of the path in world space.
+   *
+   * @return the length of the path in world space
+   */
+  public double getLength() {
+    return length;
+  }
+
+  /**
+   * Looks up the projected position and scale at the given position along the path.
+   *
+   * @param u a position along the path, from 0 to 1, clamped if outside this range
+   * @param result an array of at least 3 elements which receives the x and y coordinates
+   *        relative to the center of the carousel and the scale factor
+   */
+  public void lookup(double u, double[] result) {
+    double f = Math.max(0, Math.min(1, u)) * (SIZE - 1);
+    int k = Math.min((int)f, SIZE - 2);
+    double t = f - k;
+    double t2 = t * t;
+    double t3 = t2 * t;
+
+    double h00 = 2 * t3 - 3 * t2 + 1;
+    double h10 = t3 - 2 * t2 + t;
+    double h01 = -2 * t3 + 3 * t2;
+    double h11 = t3 - t2;
+
+    result[0] = h00 * x[k] + h10 * tangentX[k] + h01 * x[k + 1] + h11 * tangentX[k + 1];
+    result[1] = h00 * y[k] + h10 * tangentY[k] + h01 * y[k + 1] + h11 * tangentY[k + 1];
+    result[2] = scale[k] + (scale[k + 1] - scale[k]) * t;
+  }
+}
@@ -0,0 +1,161 @@
+package hs.javafx.control;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index of projected quads, used to find the frontmost quad containing a point.<p>
+ *
+ * Quads are added in front-to-back order, after which {@link #build()} sorts them into a
+ * number of vertical columns based on their horizontal extent.  A lookup then only tests the
+ * quads overlapping the column of the point, in front-to-back order.  The index is meant to
+ * be rebuilt once per frame.
+ *
+ * @param <E> the type of the elements associated with the quads
+ */
+class ProjectedQuadIndex<E> {
+  private static final int COLUMNS = 16;
+
+  private Object[] elements = new Object[16];
+  private double[] quads = new double[16 * 8];
+  private double[] bounds = new double[16 * 4];  // minX, minY, maxX, maxY
+  private int count;
+
+  private double columnWidth = 1;
+  private final int[] columnStart = new int[COLUMNS + 1];
+  private int[] columnEntries = new int[0];
+
+  /**
+   * Removes all quads.
+   *
+   * @param width the width of the area covered by the index
+   */
+  public void clear(double width) {
+    Arrays.fill(elements, 0, count, null);
+    count = 0;
+    columnWidth = Math.max(1, width / COLUMNS);
+  }
+
+  /**
+   * Adds a quad.  Quads must be added in front-to-back order.
+   *
+   * @param element the element associated with the quad
+   * @param quad an array containing the coordinates of the corners of the quad, in order
+   * @param dx the horizontal translation to apply to the quad
+   * @param dy the vertical translation to apply to the quad
+   */
+  public void add(E element, double[] quad, double dx, double dy) {
+    if(count == elements.length) {
+      elements = Arrays.copyOf(elements, count * 2);
+      quads = Arrays.copyOf(quads, count * 2 * 8);
+      bounds = Arrays.copyOf(bounds, count * 2 * 4);
+    }
+
+    int q = count * 8;
+    int b = count * 4;
+
+    bounds[b] = Double.POSITIVE_INFINITY;
+    bounds[b + 1] = Double.POSITIVE_INFINITY;
+    bounds[b + 2] = Double.NEGATIVE_INFINITY;
+    bounds[b + 3] = Double.NEGATIVE_INFINITY;
+
+    for(int i = 0; i < 8; i += 2) {
+      double x = quad[i] + dx;
+      double y = quad[i + 1] + dy;
+
+      quads[q + i] = x;
+      quads[q + i + 1] = y;
+      bounds[b] = Math.min(bounds[b], x);
+      bounds[b + 1] = Math.min(bounds[b + 1], y);
+      bounds[b + 2] = Math.max(bounds[b + 2], x);
+      bounds[b + 3] = Math.max(bounds[b + 3], y);
+    }
+
+    elements[count++] = element;
+  }
+
+  /**
+   * Sorts the quads into columns.  Must be called after adding quads and before any lookups.
+   */
+  public void build() {
+    Arrays.fill(columnStart, 0);
+
+    int total = 0;
+
+    for(int i = 0; i < count; i++) {
+      int first = toColumn(bounds[i * 4]);
+      int last = toColumn(bounds[i * 4 + 2]);
+
+      for(int c = first; c <= last; c++) {
+        columnStart[c + 1]++;
+      }
+
+      total += last - first + 1;
+    }
+
+    for(int c = 0; c < COLUMNS; c++) {
+      columnStart[c + 1] += columnStart[c];
+    }
+
+    if(columnEntries.length < total) {
+      columnEntries = new int[total];
+    }
+
+    int[] position = Arrays.copyOf(columnStart, COLUMNS);
+
+    for(int i = 0; i < count; i++) {  // keeps front-to-back order within each column
+      int first = toColumn(bounds[i * 4]);
+      int last = toColumn(bounds[i * 4 + 2]);
+
+      for(int c = first; c <= last; c++) {
+        columnEntries[position[c]++] = i;
+      }
+    }
+  }
+
+  /**
+   * Returns the element associated with the frontmost quad containing the given point.
+   *
+   * @param x an x coordinate
+   * @param y an y coordinate
+   * @return the element associated with the frontmost quad containing the given point, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public E find(double x, double y) {
+    int column = toColumn(x);
+
+    for(int e = columnStart[column]; e < columnStart[column + 1]; e++) {
+      int i = columnEntries[e];
+      int b = i * 4;
+
+      if(x >= bounds[b] && y >= bounds[b + 1] && x <= bounds[b + 2] && y <= bounds[b + 3] && contains(i * 8, x, y)) {
+        return (E)elements[i];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Even-odd test of a point against a quad, which also handles quads which are not convex.
+   */
+  private boolean contains(int q, double x, double y) {
+    boolean inside = false;
+
+    for(int i = 0, j = 6; i < 8; j = i, i += 2) {
+      double xi = quads[q + i];
+      double yi = quads[q + i + 1];
+      double xj = quads[q + j];
+      double yj = quads[q + j + 1];
+
+      if((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+        inside = !inside;
+      }
+    }
+
+    return inside;
+  }
+
+  private int toColumn(double x) {
+    return Math.max(0, Math.min(COLUMNS - 1, (int)(x / columnWidth)));
+  }
+}
@@ -0,0 +1,115 @@
+package hs.javafx.control;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Runs the per frame work of any number of carousels from a single {@link AnimationTimer}.<p>
+ *
+ * Listeners are only registered while they have work to do, for example while a carousel is
+ * animating, and the timer only runs while there are listeners.  Carousels which are idle or
+ * not shown therefore cost nothing per frame.  Must only be used on the JavaFX Application
+ * Thread.
+ */
+public final class PulseDriver {
+
+  /**
+   * Listener which is called once per frame while registered.
+   */
+  public interface PulseListener {
+
+    /**
+     * Called once per frame.
+     *
+     * @param now the timestamp of the current frame in nanoseconds
+     */
+    void pulse(long now);
+  }
+
+  private static final PulseDriver DEFAULT = new PulseDriver();
+
+  /**
+   * Returns the pulse driver shared by all carousels.
+   *
+   * @return the pulse driver shared by all carousels
+   */
+  public static PulseDriver getDefault() {
+    return DEFAULT;
+  }
+
+  private final List<PulseListener> listeners = new ArrayList<>();
+
+  /**
+   * Copy of the listeners which is iterated during a pulse, so listeners can add or remove
+   * listeners while being called.  Only recreated when the listeners changed.
+   */
+  private PulseListener[] snapshot = new PulseListener[0];
+  private boolean snapshotValid = true;
+  private long frameNanos;  // timestamp of the last frame, or of starting the timer
+
+  private final AnimationTimer timer = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      frameNanos = now;
+
+      if(!snapshotValid) {
+        snapshot = listeners.toArray(new PulseListener[listeners.size()]);
+        snapshotValid = true;
+      }
+
+      for(PulseListener listener : snapshot) {
+        if(snapshotValid || listeners.contains(listener)) {  // skip listeners removed during this frame
+          listener.pulse(now);
+        }
+      }
+    }
+  };
+
+  /**
+   * Registers a listener, unless it was already registered.  The listener is called from the
+   * next frame onwards.
+   *
+   * @param listener a listener
+   */
+  public void add(PulseListener listener) {
+    if(!listeners.contains(listener)) {
+      listeners.add(listener);
+      snapshotValid = false;
+
+      if(listeners.size() == 1) {
+        frameNanos = System.nanoTime();
+        timer.start();
+      }
+    }
+  }
+
+  /**
+   * Returns the current time on the clock of the frames.  While listeners are registered, this
+   * is the timestamp of the last frame, so work done between frames, like handling input, is
+   * timed consistently with the work done in the frames.  Otherwise it is the current value of
+   * {@link System#nanoTime()}, which the timestamps of the frames are based on.
+   *
+   * @return the current time in nanoseconds
+   */
+  public long getTime() {
+    return listeners.isEmpty() ? System.nanoTime() : frameNanos;
+  }
+
+  /**
+   * Unregisters a listener.  The listener is not called anymore, even if it was removed by
+   * another listener during the current frame.
+   *
+   * @param listener a listener
+   */
+  public void remove(PulseListener listener) {
+    if(listeners.remove(listener)) {
+      snapshotValid = false;
+
+      if(listeners.isEmpty()) {
+        timer.stop();
+      }
+    }
+  }
+}
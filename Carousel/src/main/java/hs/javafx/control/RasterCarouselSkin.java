@@ -0,0 +1,208 @@
+package hs.javafx.control;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.effect.PerspectiveTransform;
+import javafx.scene.effect.Reflection;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+/**
+ * Skin which renders the cells with a {@link CarouselRasterizer} on all available cores,
+ * instead of with effects on the JavaFX Application Thread.<p>
+ *
+ * Cells are positioned exactly like in {@link RayCarouselSkin}, and captured to images like in
+ * {@link CanvasCarouselSkin}.  At the end of each layout pass a description of the frame is
+ * handed to a background thread, which rasterizes it in parallel bands.  Only the finished
+ * pixels are copied to a {@link WritableImage} on the JavaFX Application Thread.  At most one
+ * frame is rendered at a time; when layouts happen faster than frames can be rendered,
+ * intermediate frames are skipped.  The rendered frame can therefore lag a frame behind the
+ * frontmost cell, which is still shown as a real node.
+ */
+public class RasterCarouselSkin<T> extends CanvasCarouselSkin<T> {
+  private static final ForkJoinPool POOL = new ForkJoinPool();
+
+  private final CarouselRasterizer rasterizer = new CarouselRasterizer();
+  private final Map<Image, CarouselRasterizer.Texture> textures = new WeakHashMap<>();
+  private final double[] quad = new double[8];
+
+  private WritableImage frameImage;
+  private Frame pendingFrame;
+  private boolean rendering;
+  private boolean disposed;
+
+  public RasterCarouselSkin(final Carousel<T> carousel) {
+    super(carousel);
+  }
+
+  @Override
+  public void dispose() {
+    disposed = true;
+    pendingFrame = null;
+    textures.clear();
+
+    super.dispose();
+  }
+
+  @Override
+  protected void drawCells(List<CarouselCell<T>> cells, List<Image> images) {
+    Frame frame = new Frame((int)Math.ceil(getWidth()), (int)Math.ceil(getHeight()), cells.size());
+
+    for(int i = 0; i < cells.size(); i++) {
+      CarouselCell<T> cell = cells.get(i);
+
+      if(cell.getEffect() instanceof PerspectiveTransform) {
+        frame.add(cell, (PerspectiveTransform)cell.getEffect(), getTexture(images.get(i)));
+      }
+    }
+
+    if(rendering) {
+      pendingFrame = frame;  // replaces any frame still waiting
+    }
+    else {
+      render(frame);
+    }
+  }
+
+  private CarouselRasterizer.Texture getTexture(Image image) {
+    CarouselRasterizer.Texture texture = textures.get(image);
+
+    if(texture == null) {
+      PixelReader reader = image.getPixelReader();
+      int width = (int)image.getWidth();
+      int height = (int)image.getHeight();
+      int[] pixels = new int[width * height];
+
+      reader.getPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), pixels, 0, width);
+      texture = new CarouselRasterizer.Texture(pixels, width, height, true);
+      textures.put(image, texture);
+    }
+
+    return texture;
+  }
+
+  private void render(final Frame frame) {
+    rendering = true;
+
+    POOL.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          frame.render(rasterizer);
+        }
+        finally {
+          Platform.runLater(new Runnable() {
+            @Override
+            public void run() {
+              present();
+            }
+          });
+        }
+      }
+    });
+  }
+
+  /**
+   * Copies the rendered frame to the canvas, and starts rendering the next frame if one is
+   * waiting.
+   */
+  private void present() {
+    rendering = false;
+
+    if(disposed) {
+      return;
+    }
+
+    int width = rasterizer.getWidth();
+    int height = rasterizer.getHeight();
+    GraphicsContext gc = getCanvas().getGraphicsContext2D();
+
+    gc.clearRect(0, 0, getCanvas().getWidth(), getCanvas().getHeight());
+
+    if(width > 0 && height > 0) {
+      if(frameImage == null || frameImage.getWidth() != width || frameImage.getHeight() != height) {
+        frameImage = new WritableImage(width, height);
+      }
+
+      frameImage.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), rasterizer.getPixels(), 0, width);
+      gc.drawImage(frameImage, 0, 0);
+    }
+
+    if(pendingFrame != null) {
+      Frame frame = pendingFrame;
+
+      pendingFrame = null;
+      render(frame);
+    }
+  }
+
+  /**
+   * Everything needed to render a frame, copied from the cells on the JavaFX Application
+   * Thread so the frame can be rendered on another thread.
+   */
+  private final class Frame {
+    final int width;
+    final int height;
+    final CarouselRasterizer.Texture[] textures;
+    final double[] quads;
+    final double[] parameters;  // opacity, reflection top, fraction, top opacity and bottom opacity
+
+    int count;
+
+    Frame(int width, int height, int capacity) {
+      this.width = width;
+      this.height = height;
+      this.textures = new CarouselRasterizer.Texture[capacity];
+      this.quads = new double[capacity * 8];
+      this.parameters = new double[capacity * 5];
+    }
+
+    void add(CarouselCell<T> cell, PerspectiveTransform pt, CarouselRasterizer.Texture texture) {
+      Reflection reflection = pt.getInput() instanceof Reflection ? (Reflection)pt.getInput() : null;
+      int q = count * 8;
+      int p = count * 5;
+      double dx = cell.getLayoutX();
+      double dy = cell.getLayoutY();
+
+      quads[q] = pt.getUlx() + dx;
+      quads[q + 1] = pt.getUly() + dy;
+      quads[q + 2] = pt.getUrx() + dx;
+      quads[q + 3] = pt.getUry() + dy;
+      quads[q + 4] = pt.getLrx() + dx;
+      quads[q + 5] = pt.getLry() + dy;
+      quads[q + 6] = pt.getLlx() + dx;
+      quads[q + 7] = pt.getLly() + dy;
+
+      parameters[p] = cell.getOpacity();
+
+      if(reflection != null) {
+        parameters[p + 1] = reflection.getTopOffset() / texture.getHeight();
+        parameters[p + 2] = reflection.getFraction();
+        parameters[p + 3] = reflection.getTopOpacity();
+        parameters[p + 4] = reflection.getBottomOpacity();
+      }
+
+      textures[count++] = texture;
+    }
+
+    void render(CarouselRasterizer rasterizer) {
+      rasterizer.beginFrame(width, height, 0);
+
+      for(int i = 0; i < count; i++) {
+        int p = i * 5;
+
+        System.arraycopy(quads, i * 8, quad, 0, 8);
+        rasterizer.addQuad(textures[i], quad, 0, 0, parameters[p], parameters[p + 1], parameters[p + 2], parameters[p + 3], parameters[p + 4]);
+      }
+
+      rasterizer.render(POOL);
+    }
+  }
+}
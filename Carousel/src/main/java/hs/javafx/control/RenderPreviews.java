@@ -0,0 +1,199 @@
+package hs.javafx.control;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Renders preview images of a carousel without showing a stage, using {@link CarouselGeometry}
+ * and {@link CarouselRasterizer} with the default settings of {@link Carousel}.<p>
+ *
+ * For each image in the input directory, a preview is written to the output directory showing
+ * a carousel of all images focused on that image.  Usage is:
+ *
+ * <pre>RenderPreviews &lt;input directory&gt; &lt;output directory&gt; [width height]</pre>
+ */
+public class RenderPreviews {
+  private static final double DENSITY = 0.02;
+  private static final double CELL_SIZE_RATIO = 0.6;
+
+  private final int width;
+  private final int height;
+  private final double maxCellHeight;
+  private final CarouselGeometry geometry = new CarouselGeometry();
+  private final CarouselRasterizer rasterizer = new CarouselRasterizer();
+  private final ForkJoinPool pool = new ForkJoinPool();
+
+  public static void main(String[] args) throws IOException {
+    if(args.length != 2 && args.length != 4) {
+      System.err.println("Usage: RenderPreviews <input directory> <output directory> [width height]");
+      System.exit(1);
+    }
+
+    Path outputDirectory = Paths.get(args[1]);
+    RenderPreviews previews = args.length == 4 ? new RenderPreviews(Integer.parseInt(args[2]), Integer.parseInt(args[3])) : new RenderPreviews(1280, 480);
+    List<CarouselRasterizer.Texture> textures = previews.loadTextures(Paths.get(args[0]));
+
+    Files.createDirectories(outputDirectory);
+
+    for(int i = 0; i < textures.size(); i++) {
+      ImageIO.write(previews.render(textures, i), "png", outputDirectory.resolve(String.format("preview-%04d.png", i)).toFile());
+    }
+
+    previews.pool.shutdown();
+  }
+
+  public RenderPreviews(int width, int height) {
+    if(width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("width and height must be positive: " + width + "x" + height);
+    }
+
+    this.width = width;
+    this.height = height;
+    this.maxCellHeight = CELL_SIZE_RATIO * height;
+  }
+
+  /**
+   * Loads all images in a directory, in order of their names, scaled to fit a square of the
+   * maximum cell height.  Files which cannot be decoded are skipped with a message on the
+   * standard error stream.
+   *
+   * @param directory a directory
+   * @return a list of textures, never null
+   * @throws IOException when the directory cannot be read
+   */
+  public List<CarouselRasterizer.Texture> loadTextures(Path directory) throws IOException {
+    List<Path> paths = new ArrayList<>();
+    List<CarouselRasterizer.Texture> textures = new ArrayList<>();
+
+    try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for(Path path : stream) {
+        paths.add(path);
+      }
+    }
+
+    Collections.sort(paths);
+
+    for(Path path : paths) {
+      try {
+        BufferedImage image = ImageIO.read(path.toFile());
+
+        if(image == null) {
+          System.err.println("Skipping " + path + ": not a supported image");
+        }
+        else {
+          textures.add(toTexture(image));
+        }
+      }
+      catch(IOException e) {
+        System.err.println("Skipping " + path + ": " + e.getMessage());
+      }
+    }
+
+    return textures;
+  }
+
+  /**
+   * Renders a carousel showing the given textures, focused on the given index.
+   *
+   * @param textures the textures of all cells
+   * @param focusedIndex the index of the focused cell
+   * @return the rendered image
+   */
+  public BufferedImage render(List<CarouselRasterizer.Texture> textures, int focusedIndex) {
+    double visibleCellsCount = Math.max(3, width * DENSITY);
+    int start = Math.max(0, focusedIndex - ((int)visibleCellsCount - 1) / 2);
+    int end = Math.min(textures.size() - 1, focusedIndex + (int)visibleCellsCount / 2);
+    final int count = end - start + 1;
+
+    geometry.setParameters(width, width, maxCellHeight, visibleCellsCount, 0.5, 0.5, 1.0, 0.5, true);
+    geometry.setCellCount(count);
+
+    for(int i = 0; i < count; i++) {
+      CarouselRasterizer.Texture texture = textures.get(start + i);
+
+      geometry.setCell(i, start + i - focusedIndex, texture.getWidth(), texture.getHeight());
+    }
+
+    geometry.compute();
+
+    /*
+     * Draw the cells back-to-front, which for a ring is in order of decreasing distance from
+     * the focused cell.
+     */
+
+    final int focusedSlot = focusedIndex - start;
+    Integer[] order = new Integer[count];
+
+    for(int i = 0; i < count; i++) {
+      order[i] = i;
+    }
+
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Integer.compare(Math.abs(b - focusedSlot), Math.abs(a - focusedSlot));
+      }
+    });
+
+    double[] quads = geometry.getQuads();
+    double[] quad = new double[8];
+
+    rasterizer.beginFrame(width, height, 0xff000000);
+
+    for(int slot : order) {
+      CarouselRasterizer.Texture texture = textures.get(start + slot);
+
+      System.arraycopy(quads, slot * 8, quad, 0, 8);
+
+      double dx = (width - texture.getWidth()) / 2.0;
+      double dy = (height - texture.getHeight()) / 2.0;
+
+      if(geometry.hasReflection(slot)) {
+        rasterizer.addQuad(texture, quad, dx, dy, 1.0, geometry.getReflectionTop(slot) / texture.getHeight(), geometry.getReflectionFraction(slot), geometry.getReflectionTopOpacity(slot), geometry.getReflectionBottomOpacity(slot));
+      }
+      else {
+        rasterizer.addQuad(texture, quad, dx, dy, 1.0);
+      }
+    }
+
+    rasterizer.render(pool);
+
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+
+    image.getRaster().setDataElements(0, 0, width, height, rasterizer.getPixels());
+
+    return image;
+  }
+
+  private CarouselRasterizer.Texture toTexture(BufferedImage image) {
+    double scale = maxCellHeight / Math.max(image.getWidth(), image.getHeight());
+    int w = Math.max(1, (int)Math.round(image.getWidth() * scale));
+    int h = Math.max(1, (int)Math.round(image.getHeight() * scale));
+    BufferedImage scaledImage = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = scaledImage.createGraphics();
+
+    try {
+      g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+      g.drawImage(image, 0, 0, w, h, null);
+    }
+    finally {
+      g.dispose();
+    }
+
+    return new CarouselRasterizer.Texture(scaledImage.getRGB(0, 0, w, h, null, 0, w), w, h, false);
+  }
+}
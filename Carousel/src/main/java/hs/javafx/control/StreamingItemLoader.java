@@ -0,0 +1,186 @@
+package hs.javafx.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+
+/**
+ * Populates the items of a {@link Carousel} from a background thread.<p>
+ *
+ * The {@link Producer} runs on its own thread and hands over items as it discovers them.  Items
+ * are queued and added to the carousel at most once per pulse with a single {@code addAll}, so
+ * the carousel can be shown and used while the remaining items are still being produced.
+ * Items are always appended, which leaves the focused item and the cells bound to existing
+ * items untouched.  When the producer fails, the items produced so far are kept and the
+ * failure is reported in {@link #exceptionProperty()}.
+ *
+ * @param <T> the type of the items
+ */
+public class StreamingItemLoader<T> {
+
+  /**
+   * Produces items on a background thread.
+   *
+   * @param <T> the type of the items
+   */
+  public interface Producer<T> {
+
+    /**
+     * Produces items by offering them to the given sink.  Production should stop when the sink
+     * rejects an item.
+     *
+     * @param sink a sink to offer items to
+     * @throws Exception when production failed
+     */
+    void produce(Sink<T> sink) throws Exception;
+  }
+
+  public interface Sink<T> {
+
+    /**
+     * Offers an item to the carousel.
+     *
+     * @param item an item
+     * @return false if loading was cancelled and no further items should be offered
+     */
+    boolean offer(T item);
+  }
+
+  private final Carousel<T> carousel;
+  private final Producer<T> producer;
+  private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+
+  private volatile boolean cancelled;
+  private volatile boolean produced;
+  private volatile Throwable failure;
+
+  private Thread thread;
+
+  private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(this, "running");
+  public final ReadOnlyBooleanProperty runningProperty() { return running.getReadOnlyProperty(); }
+  public final boolean isRunning() { return running.get(); }
+
+  private final ReadOnlyObjectWrapper<Throwable> exception = new ReadOnlyObjectWrapper<>(this, "exception");
+
+  /**
+   * The exception with which the producer failed, or null if it did not fail.  Set on the
+   * JavaFX Application Thread before {@link #runningProperty()} becomes false.
+   *
+   * @return the exception with which the producer failed
+   */
+  public final ReadOnlyObjectProperty<Throwable> exceptionProperty() { return exception.getReadOnlyProperty(); }
+  public final Throwable getException() { return exception.get(); }
+
+  private final AnimationTimer timer = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      boolean done = produced;  // read before draining, so no items offered before completion are missed
+      List<T> batch = new ArrayList<>();
+
+      for(;;) {
+        T item = queue.poll();
+
+        if(item == null) {
+          break;
+        }
+
+        batch.add(item);
+      }
+
+      if(!batch.isEmpty() && !cancelled) {
+        carousel.getItems().addAll(batch);
+      }
+
+      if(done || cancelled) {
+        stop();
+
+        if(done && !cancelled) {
+          exception.set(failure);
+        }
+
+        running.set(false);
+      }
+    }
+  };
+
+  public StreamingItemLoader(Carousel<T> carousel, Producer<T> producer) {
+    if(carousel == null) {
+      throw new IllegalArgumentException("carousel cannot be null");
+    }
+    if(producer == null) {
+      throw new IllegalArgumentException("producer cannot be null");
+    }
+
+    this.carousel = carousel;
+    this.producer = producer;
+  }
+
+  /**
+   * Starts producing items.  Must be called on the JavaFX Application Thread and at most once.
+   */
+  public void start() {
+    if(running.get() || produced) {
+      throw new IllegalStateException("already started");
+    }
+
+    running.set(true);
+
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          producer.produce(new Sink<T>() {
+            @Override
+            public boolean offer(T item) {
+              if(cancelled) {
+                return false;
+              }
+
+              queue.add(item);
+
+              return true;
+            }
+          });
+        }
+        catch(Exception e) {
+          failure = e;
+        }
+        finally {
+          produced = true;
+        }
+      }
+    }, "StreamingItemLoader");
+
+    thread.setDaemon(true);
+    thread.start();
+    timer.start();
+  }
+
+  /**
+   * Cancels loading.  Items not yet added to the carousel are discarded.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Cancels loading and waits until the producer has stopped, after which resources used by
+   * the producer can be released safely.  The producer stops when it next offers an item.
+   *
+   * @throws InterruptedException when interrupted while waiting
+   */
+  public void cancelAndWait() throws InterruptedException {
+    cancel();
+
+    if(thread != null) {
+      thread.join();
+    }
+  }
+}
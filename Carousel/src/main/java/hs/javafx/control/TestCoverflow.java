@@ -1,15 +1,23 @@
 package hs.javafx.control;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 import javafx.application.Application;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.CheckBox;
 import javafx.scene.control.Label;
@@ -24,6 +32,10 @@ import javafx.stage.Stage;
 import javafx.util.Callback;
 
 public class TestCoverflow extends Application {
+  private ThumbnailStore thumbnailStore;
+  private StreamingItemLoader<ImageHandle> itemLoader;
+  private ContentLoader contentLoader;
+
   public static void main(String[] args) {
     Application.launch(args);
   }
@@ -35,50 +47,111 @@ public class TestCoverflow extends Application {
     directoryChooser.setTitle("Choose a directory with images");
     File dir = directoryChooser.showDialog(null);
 
-    List<Image> images = new ArrayList<>();
-    int fileCount = 0;
-
-    for(File file : dir.listFiles()) {
-      if(file.isFile()) {
-        images.add(new Image(new FileInputStream(file)));
-        if(fileCount++ > 50) {
-          break;
-        }
-      }
-    }
+    thumbnailStore = new ThumbnailStore(Paths.get(System.getProperty("java.io.tmpdir"), "carousel-thumbnails"));
 
     BorderPane borderPane = new BorderPane();
 
-    Carousel<ImageHandle> carousel = new Carousel<>();
+    final Carousel<ImageHandle> carousel = new Carousel<>();
 
     carousel.setMinWidth(500);
     carousel.setMinHeight(300);
     carousel.setMouseTransparent(false);
     carousel.setPickOnBounds(true);
     carousel.setFocusTraversable(true);
+    carousel.thumbnailAtlasProperty().set(new ThumbnailAtlas<>(64, 64, 16, 8, new Callback<ImageHandle, Image>() {
+      @Override
+      public Image call(ImageHandle handle) {
+        ImagePyramid pyramid = handle.getPyramid();
 
-    for(Image image : images) {
-      carousel.itemsProperty().get().add(new ImageHandle(new ImageView(image)));
-    }
+        return pyramid == null ? null : pyramid.getLevel(ImagePyramid.LEVEL_COUNT - 1);
+      }
+    }));
+
+    /*
+     * The images are loaded by a loader of this carousel, so it can be stopped before the
+     * thumbnail store is closed.
+     */
+
+    contentLoader = new ContentLoader(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    carousel.contentLoaderProperty().set(contentLoader);
+
+    final ImageProducer imageProducer = new ImageProducer(dir.toPath(), thumbnailStore);
+
+    itemLoader = new StreamingItemLoader<>(carousel, imageProducer);
 
     carousel.cellFactoryProperty().set(new Callback<Carousel<ImageHandle>, CarouselCell<ImageHandle>>() {
       @Override
       public CarouselCell<ImageHandle> call(final Carousel<ImageHandle> carousel) {
-        CarouselCell<ImageHandle> carouselCell = new CarouselCell<ImageHandle>() {
+        CarouselCell<ImageHandle> carouselCell = new AsyncCarouselCell<ImageHandle>(new Callback<ImageHandle, Node>() {
+          @Override
+          public Node call(ImageHandle item) {
+            try {
+              return new PyramidView(item.loadPyramid(thumbnailStore));
+            }
+            catch(IOException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        }) {
+          {
+            InvalidationListener imageUpdater = new InvalidationListener() {
+              @Override
+              public void invalidated(Observable observable) {
+                updateImage();
+              }
+            };
+
+            graphicProperty().addListener(imageUpdater);
+            levelOfDetailProperty().addListener(imageUpdater);
+          }
+
+          /*
+           * Until the image is loaded, and while scrubbing past items which were not loaded yet,
+           * cells show the stored placeholder of the image scaled up to the size of the cell.
+           */
+
           @Override
-          protected void updateItem(ImageHandle item, boolean empty) {
-            super.updateItem(item, empty);
-
-            if(!empty) {
-              ImageView image = item.getImage();
-              image.setPreserveRatio(true);
-              image.fitWidthProperty().bind(carousel.heightProperty().multiply(0.6));
-              image.fitHeightProperty().bind(carousel.heightProperty().multiply(0.6));
-              setGraphic(image);
+          protected Node getPlaceholder(ImageHandle item) {
+            if(item.getPlaceholder() == null) {
+              return null;
             }
-            else {
-              setGraphic(null);
+
+            ImageView imageView = new ImageView(item.getPlaceholder().toImage());
+
+            fit(imageView);
+
+            return imageView;
+          }
+
+          @Override
+          protected void loadFailed(ImageHandle item, Throwable exception) {
+            System.err.println("Could not load " + item.getFile() + ": " + exception.getMessage());
+          }
+
+          private void fit(ImageView imageView) {
+            imageView.setPreserveRatio(true);
+            imageView.fitWidthProperty().bind(carousel.maxCellHeightProperty());
+            imageView.fitHeightProperty().bind(carousel.maxCellHeightProperty());
+          }
+
+          /*
+           * Loaded images use the level of their pyramid matching the level of detail of the
+           * cell, and cells shown at the smallest level use the shared atlas, if the thumbnail
+           * is in it.
+           */
+
+          private void updateImage() {
+            if(!(getGraphic() instanceof PyramidView)) {
+              return;
             }
+
+            PyramidView imageView = (PyramidView)getGraphic();
+            ThumbnailAtlas<ImageHandle> atlas = carousel.getThumbnailAtlas();
+            Rectangle2D viewport = atlas == null || getLevelOfDetail() < ImagePyramid.LEVEL_COUNT - 1 ? null : atlas.getViewport(getItem());
+
+            fit(imageView);
+            imageView.setImage(viewport == null ? imageView.getPyramid().getLevel(getLevelOfDetail()) : atlas.getImage());
+            imageView.setViewport(viewport);
           }
         };
 
@@ -95,17 +168,145 @@ public class TestCoverflow extends Application {
     stage.setWidth(800);
     stage.setHeight(600);
     stage.show();
+
+    /*
+     * Thumbnails are stored in the tier matching the actual size of the cells, which is known
+     * once the stage has been shown, and follows the carousel when it is resized.
+     */
+
+    carousel.maxCellHeightProperty().addListener(new InvalidationListener() {
+      @Override
+      public void invalidated(Observable observable) {
+        imageProducer.setTier(ThumbnailStore.toTier(carousel.getMaxCellHeight()));
+      }
+    });
+
+    imageProducer.setTier(ThumbnailStore.toTier(carousel.getMaxCellHeight()));
+    itemLoader.start();
   }
 
+  @Override
+  public void stop() throws Exception {
+    if(itemLoader != null) {
+      itemLoader.cancelAndWait();  // the producer uses the store
+    }
+    if(contentLoader != null) {
+      contentLoader.shutdown();
+      contentLoader.awaitTermination(10, TimeUnit.SECONDS);  // the cells load their images from the store
+    }
+    if(thumbnailStore != null) {
+      thumbnailStore.close();
+    }
+  }
+
+  /**
+   * Produces an item for each file in a directory.  Only the placeholders kept in the index of
+   * the thumbnail store are read here; the images themselves are loaded by the cells once they
+   * are shown and not scrubbing.
+   */
+  private static class ImageProducer implements StreamingItemLoader.Producer<ImageHandle> {
+    private final Path dir;
+    private final ThumbnailStore thumbnailStore;
+
+    private volatile int tier = ThumbnailStore.toTier(0);
+
+    public ImageProducer(Path dir, ThumbnailStore thumbnailStore) {
+      this.dir = dir;
+      this.thumbnailStore = thumbnailStore;
+    }
+
+    public void setTier(int tier) {
+      this.tier = tier;
+    }
+
+    @Override
+    public void produce(StreamingItemLoader.Sink<ImageHandle> sink) throws IOException {
+      try(DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+        for(Path path : stream) {
+          if(Files.isRegularFile(path)) {
+            File file = path.toFile();
+            int tier = this.tier;
+
+            if(!sink.offer(new ImageHandle(file, tier, thumbnailStore.getPlaceholder(file, tier)))) {
+              break;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * An image file.  The pyramid of the image is only referenced weakly, so it is kept for as
+   * long as a cell shows it.
+   */
   private static class ImageHandle {
-    private final ImageView imageView;
+    private final File file;
+    private final int tier;
+    private final ImagePlaceholder placeholder;
+
+    private volatile WeakReference<ImagePyramid> pyramid = new WeakReference<>(null);
+
+    public ImageHandle(File file, int tier, ImagePlaceholder placeholder) {
+      this.file = file;
+      this.tier = tier;
+      this.placeholder = placeholder;
+    }
+
+    public File getFile() {
+      return file;
+    }
+
+    public ImagePlaceholder getPlaceholder() {
+      return placeholder;
+    }
+
+    /**
+     * Returns the pyramid of the image, if it is loaded.
+     *
+     * @return the pyramid of the image, or null if it is not loaded
+     */
+    public ImagePyramid getPyramid() {
+      return pyramid.get();
+    }
+
+    /**
+     * Loads the image, storing a thumbnail of it if it was not stored yet.  Called on a
+     * background thread.
+     *
+     * @param thumbnailStore the store to load the image from
+     * @return the pyramid of the image
+     * @throws IOException when the image cannot be loaded
+     */
+    public ImagePyramid loadPyramid(ThumbnailStore thumbnailStore) throws IOException {
+      Image image = thumbnailStore.load(file, tier);
+
+      if(image.isError()) {
+        throw new IOException("not a supported image: " + file);
+      }
+
+      ImagePyramid imagePyramid = new ImagePyramid(image);
+
+      pyramid = new WeakReference<>(imagePyramid);
+
+      return imagePyramid;
+    }
+  }
+
+  /**
+   * Shows an image of a pyramid, keeping the pyramid reachable while it is shown.
+   */
+  private static class PyramidView extends ImageView {
+    private final ImagePyramid pyramid;
+
+    public PyramidView(ImagePyramid pyramid) {
+      super(pyramid.getLevel(0));
 
-    public ImageHandle(ImageView imageView) {
-      this.imageView = imageView;
+      this.pyramid = pyramid;
     }
 
-    public ImageView getImage() {
-      return imageView;
+    public ImagePyramid getPyramid() {
+      return pyramid;
     }
   }
 
@@ -0,0 +1,221 @@
+package hs.javafx.control;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.util.Callback;
+
+/**
+ * Packs small thumbnails into a single shared image, so far away cells which all show a small
+ * thumbnail use one texture instead of one texture each.<p>
+ *
+ * The atlas is divided into slots of a fixed size.  Thumbnails are added when they are
+ * retained, and cells show them with an {@code ImageView} using {@link #getImage()} and the
+ * viewport returned by {@link #getViewport(Object)}.  Thumbnails which are no longer retained
+ * stay in the atlas until their slot is needed for another thumbnail, least recently used
+ * first, so moving back and forth does not copy the same thumbnails again.<p>
+ *
+ * A {@link Carousel} with an atlas set in its {@link Carousel#thumbnailAtlasProperty()}
+ * retains the thumbnails of the items near its visible cells.  Must only be used on the JavaFX
+ * Application Thread.
+ *
+ * @param <K> the type of the keys identifying the thumbnails
+ */
+public class ThumbnailAtlas<K> {
+  private final int slotWidth;
+  private final int slotHeight;
+  private final int columns;
+  private final Callback<K, Image> thumbnailFactory;
+  private final WritableImage image;
+
+  private final Map<K, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);  // least recently used first
+  private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+  /**
+   * Creates a new atlas.
+   *
+   * @param slotWidth the width of a slot, thumbnails which are wider are not added
+   * @param slotHeight the height of a slot, thumbnails which are higher are not added
+   * @param columns the number of slots horizontally
+   * @param rows the number of slots vertically
+   * @param thumbnailFactory a callback which returns the thumbnail for a key, or null if there
+   *        is none
+   */
+  public ThumbnailAtlas(int slotWidth, int slotHeight, int columns, int rows, Callback<K, Image> thumbnailFactory) {
+    if(slotWidth <= 0 || slotHeight <= 0 || columns <= 0 || rows <= 0) {
+      throw new IllegalArgumentException("slot size and number of slots must be positive");
+    }
+    if(thumbnailFactory == null) {
+      throw new IllegalArgumentException("thumbnailFactory cannot be null");
+    }
+
+    this.slotWidth = slotWidth;
+    this.slotHeight = slotHeight;
+    this.columns = columns;
+    this.thumbnailFactory = thumbnailFactory;
+    this.image = new WritableImage(slotWidth * columns, slotHeight * rows);
+
+    for(int i = 0; i < columns * rows; i++) {
+      freeSlots.add(i);
+    }
+  }
+
+  /**
+   * Returns the image containing all thumbnails.
+   *
+   * @return the image containing all thumbnails
+   */
+  public Image getImage() {
+    return image;
+  }
+
+  /**
+   * Returns the area of the atlas image containing the thumbnail for the given key.  If the
+   * thumbnail is retained but could not be added yet, for example because it was still
+   * loading, adding it is tried again.
+   *
+   * @param key a key
+   * @return the area of the atlas image containing the thumbnail for the given key, or null if
+   *         it is not in the atlas
+   */
+  public Rectangle2D getViewport(K key) {
+    Entry entry = entries.get(key);
+
+    if(entry == null) {
+      return null;
+    }
+
+    if(entry.viewport == null) {
+      store(key, entry);
+    }
+
+    return entry.viewport;
+  }
+
+  /**
+   * Retains the thumbnail for the given key, adding it to the atlas if it was not present.
+   * Each call must be matched by a call to {@link #release(Object)}.  Thumbnails which are
+   * not available yet, are too large or for which no slot is free are not added, but are tried
+   * again when retained again or when their viewport is requested.
+   *
+   * @param key a key
+   */
+  public void retain(K key) {
+    Entry entry = entries.get(key);
+
+    if(entry == null) {
+      entry = new Entry();
+      entries.put(key, entry);
+    }
+
+    entry.references++;
+
+    if(entry.viewport == null) {
+      store(key, entry);
+    }
+  }
+
+  /**
+   * Releases the thumbnail for the given key.  Its slot can be reused once it is no longer
+   * retained.
+   *
+   * @param key a key
+   */
+  public void release(K key) {
+    Entry entry = entries.get(key);
+
+    if(entry != null && --entry.references <= 0) {
+      if(entry.viewport == null) {
+        entries.remove(key);
+      }
+      else {
+        entry.references = 0;
+      }
+    }
+  }
+
+  /**
+   * Removes all thumbnails which are not retained, for example after the thumbnails themselves
+   * changed.
+   */
+  public void clear() {
+    Iterator<Entry> iterator = entries.values().iterator();
+
+    while(iterator.hasNext()) {
+      Entry entry = iterator.next();
+
+      if(entry.references == 0) {
+        freeSlots.add(entry.slot);
+        iterator.remove();
+      }
+    }
+  }
+
+  private void store(K key, Entry entry) {
+    Image thumbnail = thumbnailFactory.call(key);
+
+    if(thumbnail == null || thumbnail.getProgress() < 1.0 || thumbnail.isError()) {
+      return;
+    }
+
+    PixelReader reader = thumbnail.getPixelReader();
+    int width = (int)thumbnail.getWidth();
+    int height = (int)thumbnail.getHeight();
+
+    if(reader == null || width <= 0 || height <= 0 || width > slotWidth || height > slotHeight) {
+      return;
+    }
+
+    Integer slot = freeSlots.poll();
+
+    if(slot == null) {
+      slot = evict();
+
+      if(slot == null) {
+        return;  // all slots are retained
+      }
+    }
+
+    int x = (slot % columns) * slotWidth;
+    int y = (slot / columns) * slotHeight;
+
+    image.getPixelWriter().setPixels(x, y, width, height, reader, 0, 0);
+
+    entry.slot = slot;
+    entry.viewport = new Rectangle2D(x, y, width, height);
+  }
+
+  /**
+   * Removes the least recently used thumbnail which is not retained.
+   *
+   * @return the slot of the removed thumbnail, or null if all thumbnails are retained
+   */
+  private Integer evict() {
+    Iterator<Entry> iterator = entries.values().iterator();
+
+    while(iterator.hasNext()) {
+      Entry entry = iterator.next();
+
+      if(entry.references == 0) {
+        iterator.remove();
+
+        return entry.slot;
+      }
+    }
+
+    return null;
+  }
+
+  private static class Entry {
+    int references;
+    int slot;
+    Rectangle2D viewport;
+  }
+}
@@ -0,0 +1,553 @@
+package hs.javafx.control;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import javafx.scene.image.WritablePixelFormat;
+
+/**
+ * Persistent store of pre-scaled and pre-decoded thumbnails.<p>
+ *
+ * All pixel data is kept in a single pack file which is accessed through a memory mapping,
+ * so thumbnails stored during an earlier run are turned into images straight from the page
+ * cache without decoding their source files again.  A separate index file maps source files
+ * to their location in the pack, and keeps an {@link ImagePlaceholder} of each thumbnail
+ * which can be shown while it is loading.  An entry is only returned if the size and modification time
+ * of its source file did not change since it was stored.<p>
+ *
+ * Replaced and invalidated entries leave unused space in the pack.  This space is reclaimed
+ * incrementally: when the pack contains too much unused space, each {@link #put(File, int, Image)}
+ * copies a bounded amount of data to a new pack.  Once all entries are copied, the index is
+ * written naming the new pack and only then is the old pack deleted, so the pack named by the
+ * index is never modified in place.<p>
+ *
+ * The store is a cache; when the index is missing, invalid or names more data than the pack
+ * contains, both are discarded and the store starts out empty.  Data appended to the pack
+ * after the index was last written is discarded, keeping the indexed thumbnails.
+ */
+public class ThumbnailStore implements Closeable {
+  private static final int INDEX_MAGIC = 0x54484958;   // THIX
+  private static final int INDEX_VERSION = 3;
+  private static final int RECORD_HEADER_SIZE = 8;     // width and height
+  private static final long COMPACTION_STEP_BYTES = 4 * 1024 * 1024;
+  private static final WritablePixelFormat<IntBuffer> PIXEL_FORMAT = PixelFormat.getIntArgbPreInstance();
+
+  private final Path directory;
+  private final Path indexPath;
+  private final Map<String, Entry> entries = new HashMap<>();
+
+  private int generation;  // number of the pack named by the index
+  private FileChannel channel;
+  private MappedByteBuffer mappedBuffer;
+  private long packEnd;
+  private long unusedBytes;
+  private boolean indexDirty;
+
+  private FileChannel compactionChannel;  // the next pack while a compaction is in progress, otherwise null
+  private List<Entry> compactionEntries;  // entries still to be copied to the next pack, last one first
+  private long compactionEnd;
+  private long compactionUnusedBytes;
+
+  /**
+   * Opens the store in the given directory, creating it if needed.
+   *
+   * @param directory a directory
+   * @throws IOException when the store could not be opened
+   */
+  public ThumbnailStore(Path directory) throws IOException {
+    Files.createDirectories(directory);
+
+    this.directory = directory;
+    this.indexPath = directory.resolve("thumbnails.idx");
+
+    if(!readIndex()) {
+      if(channel != null) {
+        channel.close();
+      }
+
+      entries.clear();
+      generation = 0;
+      channel = openPack(generation);
+      channel.truncate(0);
+      packEnd = 0;
+      unusedBytes = 0;
+      indexDirty = true;
+    }
+
+    deleteUnusedPacks();
+  }
+
+  /**
+   * Returns the size tier to use for cells of the given size.  Tiers are powers of two, so
+   * small changes in cell size do not cause thumbnails to be stored again.
+   *
+   * @param cellSize a cell size in pixels
+   * @return a size tier
+   */
+  public static int toTier(double cellSize) {
+    int tier = 32;
+
+    while(tier < cellSize) {
+      tier *= 2;
+    }
+
+    return tier;
+  }
+
+  /**
+   * Returns the thumbnail of the given source file for the given tier, decoding the source and
+   * storing the result if it was not stored yet or if the source changed.
+   *
+   * @param source a source image file
+   * @param tier a size tier as returned by {@link #toTier(double)}
+   * @return an image, never null
+   * @throws IOException when the store could not be updated
+   */
+  public Image load(File source, int tier) throws IOException {
+    Image image = get(source, tier);
+
+    if(image == null) {
+      image = new Image(source.toURI().toString(), tier, tier, true, true);
+
+      if(!image.isError()) {
+        put(source, tier, image);
+      }
+    }
+
+    return image;
+  }
+
+  /**
+   * Returns the stored thumbnail of the given source file for the given tier.
+   *
+   * @param source a source image file
+   * @param tier a size tier
+   * @return an image, or null if there is no thumbnail or it is out of date
+   * @throws IOException when the pack could not be mapped
+   */
+  public synchronized WritableImage get(File source, int tier) throws IOException {
+    String key = toKey(source, tier);
+    Entry entry = entries.get(key);
+
+    if(entry == null) {
+      return null;
+    }
+
+    if(entry.lastModified != source.lastModified() || entry.length != source.length()) {
+      remove(key);
+      return null;
+    }
+
+    ByteBuffer buffer = map().duplicate();
+    int pixelsPosition = (int)entry.offset + RECORD_HEADER_SIZE;
+
+    buffer.limit(pixelsPosition + entry.width * entry.height * 4);
+    buffer.position(pixelsPosition);
+
+    WritableImage image = new WritableImage(entry.width, entry.height);
+
+    image.getPixelWriter().setPixels(0, 0, entry.width, entry.height, PIXEL_FORMAT, buffer.slice().asIntBuffer(), entry.width);
+
+    return image;
+  }
+
+  /**
+   * Returns the placeholder of the stored thumbnail of the given source file for the given
+   * tier.  Placeholders are kept in the index, so this does not access the pack.
+   *
+   * @param source a source image file
+   * @param tier a size tier
+   * @return a placeholder, or null if there is no thumbnail or it is out of date
+   */
+  public synchronized ImagePlaceholder getPlaceholder(File source, int tier) {
+    Entry entry = entries.get(toKey(source, tier));
+
+    if(entry == null || entry.lastModified != source.lastModified() || entry.length != source.length()) {
+      return null;
+    }
+
+    return new ImagePlaceholder(entry.placeholder);
+  }
+
+  /**
+   * Stores the thumbnail of the given source file for the given tier, replacing any thumbnail
+   * stored earlier.
+   *
+   * @param source a source image file
+   * @param tier a size tier
+   * @param image a fully loaded image, already scaled to the tier
+   * @throws IOException when the store could not be updated
+   */
+  public synchronized void put(File source, int tier, Image image) throws IOException {
+    PixelReader reader = image.getPixelReader();
+    int width = (int)image.getWidth();
+    int height = (int)image.getHeight();
+
+    if(reader == null || width == 0 || height == 0) {
+      throw new IllegalArgumentException("image must be fully loaded: " + source);
+    }
+
+    int[] pixels = new int[width * height];
+
+    reader.getPixels(0, 0, width, height, PIXEL_FORMAT, pixels, 0, width);
+
+    ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + pixels.length * 4);
+
+    buffer.putInt(width);
+    buffer.putInt(height);
+    buffer.asIntBuffer().put(pixels);
+    buffer.rewind();
+
+    String key = toKey(source, tier);
+
+    remove(key);
+
+    Entry entry = new Entry(key, source.lastModified(), source.length(), packEnd, width, height, ImagePlaceholder.of(pixels, width, height).toBytes());
+
+    write(buffer, packEnd);
+
+    packEnd += entry.size();
+    entries.put(key, entry);
+    indexDirty = true;
+
+    if(compactionChannel != null) {
+      compactionEntries.add(0, entry);
+    }
+
+    if(compactionChannel != null || unusedBytes > packEnd / 4) {
+      compact(COMPACTION_STEP_BYTES);
+    }
+  }
+
+  /**
+   * Performs a step of compaction, copying at most roughly the given number of bytes to a new
+   * pack to reclaim space left by replaced or invalidated entries.  When all entries have been
+   * copied, the index is written and the store switches to the new pack.
+   *
+   * @param maxBytes the maximum number of bytes to copy in this step
+   * @return true if compaction completed, false if more steps are needed
+   * @throws IOException when the pack could not be updated
+   */
+  public synchronized boolean compact(long maxBytes) throws IOException {
+    if(compactionChannel == null) {
+      if(unusedBytes == 0) {
+        return true;
+      }
+
+      compactionChannel = openPack(generation + 1);
+      compactionChannel.truncate(0);
+      compactionEntries = new ArrayList<>(entries.values());
+      compactionEnd = 0;
+      compactionUnusedBytes = 0;
+
+      Collections.sort(compactionEntries, Collections.reverseOrder(BY_OFFSET));
+    }
+
+    long bytesCopied = 0;
+
+    while(!compactionEntries.isEmpty()) {
+      if(bytesCopied >= maxBytes) {
+        return false;
+      }
+
+      Entry entry = compactionEntries.remove(compactionEntries.size() - 1);
+
+      if(entries.get(entry.key) != entry) {
+        continue;  // removed since compaction started
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate((int)entry.size());
+
+      while(buffer.hasRemaining() && channel.read(buffer, entry.offset + buffer.position()) >= 0) {
+        // read until buffer is full
+      }
+
+      buffer.flip();
+
+      entry.compactedOffset = compactionEnd;
+
+      while(buffer.hasRemaining()) {
+        compactionEnd += compactionChannel.write(buffer, compactionEnd);
+      }
+
+      bytesCopied += entry.size();
+    }
+
+    /*
+     * All entries have been copied.  The index is written naming the new pack before the old
+     * pack is deleted, so a crash at any point leaves an index with a pack which matches it.
+     * The old pack is never truncated, as parts of it may still be mapped.
+     */
+
+    compactionChannel.force(false);
+
+    FileChannel oldChannel = channel;
+    int oldGeneration = generation;
+
+    for(Entry entry : entries.values()) {
+      entry.offset = entry.compactedOffset;
+      entry.compactedOffset = -1;
+    }
+
+    channel = compactionChannel;
+    generation++;
+    packEnd = compactionEnd;
+    unusedBytes = compactionUnusedBytes;
+    mappedBuffer = null;
+    compactionChannel = null;
+    compactionEntries = null;
+    indexDirty = true;
+
+    try {
+      flush();
+    }
+    finally {
+      oldChannel.close();
+    }
+
+    deletePack(oldGeneration);
+
+    return true;
+  }
+
+  /**
+   * Writes the index if it changed.  Entries stored since the last flush are lost if the
+   * store is not flushed or closed.
+   *
+   * @throws IOException when the index could not be written
+   */
+  public synchronized void flush() throws IOException {
+    if(!indexDirty) {
+      return;
+    }
+
+    channel.force(false);
+
+    Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+
+    try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+      out.writeInt(INDEX_MAGIC);
+      out.writeInt(INDEX_VERSION);
+      out.writeInt(generation);
+      out.writeLong(packEnd);
+      out.writeLong(unusedBytes);
+      out.writeInt(entries.size());
+
+      for(Entry entry : entries.values()) {
+        out.writeUTF(entry.key);
+        out.writeLong(entry.lastModified);
+        out.writeLong(entry.length);
+        out.writeLong(entry.offset);
+        out.writeInt(entry.width);
+        out.writeInt(entry.height);
+        out.write(entry.placeholder);
+      }
+    }
+
+    Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+    indexDirty = false;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      flush();
+    }
+    finally {
+      mappedBuffer = null;
+      channel.close();
+
+      if(compactionChannel != null) {
+        compactionChannel.close();
+        compactionChannel = null;
+        compactionEntries = null;
+        deletePack(generation + 1);
+      }
+    }
+  }
+
+  private boolean readIndex() throws IOException {
+    if(!Files.exists(indexPath)) {
+      return false;
+    }
+
+    try(InputStream inputStream = Files.newInputStream(indexPath); DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream))) {
+      if(in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+        return false;
+      }
+
+      generation = in.readInt();
+      channel = openPack(generation);
+      packEnd = in.readLong();
+      unusedBytes = in.readLong();
+
+      if(packEnd > channel.size()) {
+        return false;
+      }
+
+      /*
+       * Thumbnails stored after the index was last written, for example before a crash, are
+       * not indexed.  They are cut off, so the indexed thumbnails remain usable.
+       */
+
+      if(packEnd < channel.size()) {
+        channel.truncate(packEnd);
+      }
+
+      int count = in.readInt();
+
+      for(int i = 0; i < count; i++) {
+        Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readLong(), in.readInt(), in.readInt(), new byte[ImagePlaceholder.BYTE_COUNT]);
+
+        in.readFully(entry.placeholder);
+
+        entries.put(entry.key, entry);
+      }
+
+      return true;
+    }
+    catch(IOException e) {
+      return false;
+    }
+  }
+
+  private void remove(String key) {
+    Entry entry = entries.remove(key);
+
+    if(entry != null) {
+      unusedBytes += entry.size();
+      indexDirty = true;
+
+      if(entry.compactedOffset >= 0) {
+        compactionUnusedBytes += entry.size();
+      }
+    }
+  }
+
+  private void write(ByteBuffer buffer, long position) throws IOException {
+    while(buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  private FileChannel openPack(int packGeneration) throws IOException {
+    return FileChannel.open(toPackPath(packGeneration), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  private Path toPackPath(int packGeneration) {
+    return directory.resolve("thumbnails-" + packGeneration + ".pack");
+  }
+
+  /**
+   * Deletes the pack of the given generation.  On some platforms a pack cannot be deleted
+   * while it is still mapped; such packs are deleted when the store is opened again.
+   */
+  private void deletePack(int packGeneration) {
+    try {
+      Files.deleteIfExists(toPackPath(packGeneration));
+    }
+    catch(IOException e) {
+      // deleted by deleteUnusedPacks when the store is opened again
+    }
+  }
+
+  /**
+   * Deletes packs which are not named by the index, left behind by an interrupted compaction
+   * or because they were still mapped when they were replaced.
+   */
+  private void deleteUnusedPacks() throws IOException {
+    Path packPath = toPackPath(generation);
+
+    try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "thumbnails*.pack")) {
+      for(Path path : stream) {
+        if(!path.equals(packPath)) {
+          try {
+            Files.deleteIfExists(path);
+          }
+          catch(IOException e) {
+            // still mapped, tried again when the store is opened again
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a mapping of the complete pack, remapping it if the pack grew since it was last
+   * mapped.
+   */
+  private MappedByteBuffer map() throws IOException {
+    if(mappedBuffer == null || mappedBuffer.capacity() < packEnd) {
+      if(packEnd > Integer.MAX_VALUE) {
+        throw new IOException("pack too large to map: " + packEnd);
+      }
+
+      mappedBuffer = channel.map(MapMode.READ_ONLY, 0, packEnd);
+    }
+
+    return mappedBuffer;
+  }
+
+  private static String toKey(File source, int tier) {
+    return tier + ":" + source.getAbsolutePath();
+  }
+
+  private static final Comparator<Entry> BY_OFFSET = new Comparator<Entry>() {
+    @Override
+    public int compare(Entry o1, Entry o2) {
+      return Long.compare(o1.offset, o2.offset);
+    }
+  };
+
+  private static class Entry {
+    final String key;
+    final long lastModified;
+    final long length;
+    final int width;
+    final int height;
+    final byte[] placeholder;
+
+    long offset;
+    long compactedOffset = -1;  // offset in the next pack while a compaction is in progress, otherwise -1
+
+    Entry(String key, long lastModified, long length, long offset, int width, int height, byte[] placeholder) {
+      this.key = key;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.offset = offset;
+      this.width = width;
+      this.height = height;
+      this.placeholder = placeholder;
+    }
+
+    long size() {
+      return RECORD_HEADER_SIZE + (long)width * height * 4;
+    }
+  }
+}
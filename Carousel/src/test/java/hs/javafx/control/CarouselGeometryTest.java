@@ -0,0 +1,165 @@
+package hs.javafx.control;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CarouselGeometryTest {
+  private static final double DELTA = 1e-9;
+  private static final double CELL_WIDTH = 120;
+  private static final double CELL_HEIGHT = 100;
+  private static final double[] INDICES = {-2.75, -1.25, -0.5, 0, 0.5, 1.25, 2.75};
+
+  private CarouselGeometry geometry;
+
+  @Before
+  public void before() {
+    geometry = new CarouselGeometry();
+    geometry.setParameters(800, 800, CELL_HEIGHT, 16, 0.5, 0.5, 1.0, 0.5, true);
+    geometry.setCellCount(INDICES.length);
+
+    for(int i = 0; i < INDICES.length; i++) {
+      geometry.setCell(i, INDICES[i], CELL_WIDTH, CELL_HEIGHT);
+    }
+
+    geometry.compute();
+  }
+
+  @Test
+  public void shouldShowCenterCellAsUndistortedRectangle() {
+    double[] quads = geometry.getQuads();
+    double[] bottomEdges = geometry.getBottomEdges();
+    int q = slotOf(0) * 8;
+    int b = slotOf(0) * 4;
+
+    assertEquals(quads[q], quads[q + 6], DELTA);          // left edge vertical
+    assertEquals(quads[q + 2], quads[q + 4], DELTA);      // right edge vertical
+    assertEquals(quads[q + 1], quads[q + 3], DELTA);      // top edge horizontal
+    assertEquals(quads[q + 5], quads[q + 7], DELTA);      // bottom edge horizontal
+    assertEquals(CELL_WIDTH, quads[q] + quads[q + 2], DELTA);  // centered on the cell
+
+    double projectedWidth = quads[q + 2] - quads[q];
+    double projectedHeight = bottomEdges[b + 1] - quads[q + 1];
+
+    assertEquals(CELL_WIDTH / CELL_HEIGHT, projectedWidth / projectedHeight, DELTA);
+  }
+
+  @Test
+  public void shouldMirrorCellsAroundCenter() {
+    double[] quads = geometry.getQuads();
+
+    for(double index : new double[] {0.5, 1.25, 2.75}) {
+      int q = slotOf(index) * 8;
+      int m = slotOf(-index) * 8;
+
+      assertEquals(quads[q] - CELL_WIDTH / 2, -(quads[m + 2] - CELL_WIDTH / 2), DELTA);
+      assertEquals(quads[q + 2] - CELL_WIDTH / 2, -(quads[m] - CELL_WIDTH / 2), DELTA);
+      assertEquals(quads[q + 1], quads[m + 3], DELTA);
+      assertEquals(quads[q + 3], quads[m + 1], DELTA);
+      assertEquals(quads[q + 5], quads[m + 7], DELTA);
+      assertEquals(quads[q + 7], quads[m + 5], DELTA);
+    }
+  }
+
+  @Test
+  public void shouldProjectCellsNarrowerFurtherFromCenter() {
+    double[] quads = geometry.getQuads();
+    double previousWidth = Double.MAX_VALUE;
+
+    for(double index : new double[] {0, 0.5, 1.25, 2.75}) {
+      int q = slotOf(index) * 8;
+      double width = quads[q + 2] - quads[q];
+
+      assertTrue("width at index " + index, width < previousWidth);
+
+      previousWidth = width;
+    }
+  }
+
+  @Test
+  public void shouldPlaceReflectionBetweenCellAndBottomOfQuad() {
+    double[] quads = geometry.getQuads();
+    double[] reflectionEdges = geometry.getReflectionEdges();
+    double[] bottomEdges = geometry.getBottomEdges();
+
+    for(double index : INDICES) {
+      int slot = slotOf(index);
+
+      assertTrue(geometry.hasReflection(slot));
+      assertTrue(reflectionEdges[slot * 4 + 1] >= bottomEdges[slot * 4 + 1] - DELTA);
+      assertTrue(reflectionEdges[slot * 4 + 1] <= quads[slot * 8 + 7] + DELTA);
+      assertTrue(reflectionEdges[slot * 4 + 3] >= bottomEdges[slot * 4 + 3] - DELTA);
+      assertTrue(reflectionEdges[slot * 4 + 3] <= quads[slot * 8 + 5] + DELTA);
+    }
+  }
+
+  @Test
+  public void shouldComputeReflectionOfFullHeightCell() {
+    double[] result = new double[5];
+
+    assertTrue(CarouselGeometry.computeReflection(100, 100, 0.5, result));
+    assertEquals(0, result[0], DELTA);     // top offset
+    assertEquals(0.5, result[1], DELTA);   // fraction
+    assertEquals(0.5, result[2], DELTA);   // top opacity
+    assertEquals(0, result[3], DELTA);     // bottom opacity
+    assertEquals(50, result[4], DELTA);    // space needed below the cell
+  }
+
+  @Test
+  public void shouldFadeReflectionOfSmallCellBeforeItsBottom() {
+    double[] result = new double[5];
+
+    assertTrue(CarouselGeometry.computeReflection(20, 20, 1.0, result));
+    assertEquals(0, result[0], DELTA);
+    assertEquals(1, result[1], DELTA);
+    assertEquals(0.5, result[2], DELTA);
+    assertEquals(0.3, result[3], DELTA);
+    assertEquals(20, result[4], DELTA);
+  }
+
+  @Test
+  public void shouldHaveNoReflectionWhenCellIsTooFarAboveFloor() {
+    assertFalse(CarouselGeometry.computeReflection(50, 100, 0.0, new double[5]));
+  }
+
+  @Test
+  public void shouldHaveNoReflectionsWhenDisabled() {
+    geometry.setParameters(800, 800, CELL_HEIGHT, 16, 0.5, 0.5, 1.0, 0.5, false);
+    geometry.compute();
+
+    double[] quads = geometry.getQuads();
+    double[] bottomEdges = geometry.getBottomEdges();
+
+    for(double index : INDICES) {
+      int slot = slotOf(index);
+
+      assertFalse(geometry.hasReflection(slot));
+      assertEquals(bottomEdges[slot * 4 + 1], quads[slot * 8 + 7], DELTA);
+      assertEquals(bottomEdges[slot * 4 + 3], quads[slot * 8 + 5], DELTA);
+    }
+  }
+
+  @Test
+  public void shouldMoveViewerBackWhenViewWidthIncreases() {
+    int q = slotOf(0) * 8;
+    double height = geometry.getQuads()[q + 7] - geometry.getQuads()[q + 1];
+
+    geometry.setParameters(800, 1600, CELL_HEIGHT, 16, 0.5, 0.5, 1.0, 0.5, true);
+    geometry.compute();
+
+    assertTrue(geometry.getQuads()[q + 7] - geometry.getQuads()[q + 1] < height);
+  }
+
+  private static int slotOf(double index) {
+    for(int i = 0; i < INDICES.length; i++) {
+      if(INDICES[i] == index) {
+        return i;
+      }
+    }
+
+    throw new IllegalArgumentException("no slot for index " + index);
+  }
+}
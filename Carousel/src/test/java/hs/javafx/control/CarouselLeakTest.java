@@ -0,0 +1,216 @@
+package hs.javafx.control;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Stress test for the skin life cycle.  Once per pulse a number of carousels is created and
+ * scrolled so their transitions are running, and the carousels created during the previous
+ * pulse are removed.  A single long lived carousel has its skin replaced every pulse,
+ * alternating between a {@link RayCarouselSkin} and a {@link PathCarouselSkin}.  All discarded
+ * carousels, skins and cells must be garbage collected once their transitions have finished.
+ */
+public class CarouselLeakTest {
+  private static final int ITERATIONS = 300;
+  private static final int CAROUSELS_PER_ITERATION = 4;
+  private static final int ITEM_COUNT = 500;
+  private static final long SETTLE_MILLIS = 2000;  // allows running transitions to finish
+  private static final int GC_ATTEMPTS = 10;
+
+  private final ObservableList<String> items = FXCollections.observableArrayList();
+  private final List<TrackedReference> trackedReferences = Collections.synchronizedList(new ArrayList<TrackedReference>());
+  private final List<Carousel<String>> previousCarousels = new ArrayList<>();
+  private final VBox root = new VBox();
+
+  private Carousel<String> longLivedCarousel;
+  private Stage stage;
+  private int iteration;
+
+  @BeforeClass
+  public static void beforeClass() {
+    new JFXPanel();  // starts the JavaFX toolkit
+  }
+
+  @Test(timeout = 120000)
+  public void shouldReleaseDiscardedCarouselsSkinsAndCells() throws Exception {
+    final CountDownLatch done = new CountDownLatch(1);
+
+    runAndWait(new Runnable() {
+      @Override
+      public void run() {
+        for(int i = 0; i < ITEM_COUNT; i++) {
+          items.add("Item " + i);
+        }
+
+        longLivedCarousel = new Carousel<>();
+        longLivedCarousel.itemsProperty().set(items);
+        longLivedCarousel.setPrefHeight(150);
+
+        root.getChildren().add(longLivedCarousel);
+
+        stage = new Stage();
+        stage.setScene(new Scene(root, 800, 600));
+        stage.show();
+
+        new AnimationTimer() {
+          @Override
+          public void handle(long now) {
+            iterate();
+
+            if(iteration >= ITERATIONS) {
+              stop();
+              root.getChildren().removeAll(previousCarousels);
+              previousCarousels.clear();
+              done.countDown();
+            }
+          }
+        }.start();
+      }
+    });
+
+    done.await();
+    Thread.sleep(SETTLE_MILLIS);
+
+    runAndWait(new Runnable() {
+      @Override
+      public void run() {
+        stage.hide();
+        stage = null;
+      }
+    });
+
+    for(int i = 0; i < GC_ATTEMPTS && !trackedReferences.isEmpty(); i++) {
+      System.gc();
+      Thread.sleep(100);
+
+      synchronized(trackedReferences) {
+        for(int j = trackedReferences.size() - 1; j >= 0; j--) {
+          if(trackedReferences.get(j).get() == null) {
+            trackedReferences.remove(j);
+          }
+        }
+      }
+    }
+
+    assertEquals("leaked objects: " + trackedReferences, 0, trackedReferences.size());
+    assertTrue(iteration >= ITERATIONS);
+  }
+
+  private void iterate() {
+    iteration++;
+
+    /*
+     * Replace the carousels of the previous iteration with new ones.
+     */
+
+    root.getChildren().removeAll(previousCarousels);
+    previousCarousels.clear();
+
+    for(int i = 0; i < CAROUSELS_PER_ITERATION; i++) {
+      Carousel<String> carousel = new Carousel<>();
+
+      carousel.itemsProperty().set(items);
+      carousel.setPrefHeight(100);
+      carousel.setSkin(createSkin(carousel, iteration + i));
+
+      root.getChildren().add(carousel);
+      previousCarousels.add(carousel);
+
+      track(carousel, "carousel");
+      track(carousel.getSkin(), "skin");
+    }
+
+    /*
+     * Replace the skin of the long lived carousel, and track the old skin and its cells.
+     */
+
+    AbstractCarouselSkin<?> oldSkin = (AbstractCarouselSkin<?>)longLivedCarousel.getSkin();
+
+    if(oldSkin != null) {
+      track(oldSkin, "replaced skin");
+
+      for(Node node : oldSkin.getChildren()) {
+        if(node instanceof CarouselCell) {
+          track(node, "cell of replaced skin");
+        }
+      }
+    }
+
+    longLivedCarousel.setSkin(createSkin(longLivedCarousel, iteration));
+
+    /*
+     * Move the focus so transitions are running on all carousels.
+     */
+
+    int index = (iteration * 7) % ITEM_COUNT;
+
+    longLivedCarousel.getFocusModel().focus(index);
+
+    for(Carousel<String> carousel : previousCarousels) {
+      carousel.getFocusModel().focus(index);
+    }
+  }
+
+  private static AbstractCarouselSkin<String> createSkin(Carousel<String> carousel, int variant) {
+    return variant % 2 == 0 ? new RayCarouselSkin<>(carousel) : new PathCarouselSkin<>(carousel);
+  }
+
+  private void track(Object object, String description) {
+    trackedReferences.add(new TrackedReference(object, description, iteration));
+  }
+
+  private static void runAndWait(final Runnable runnable) throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+
+    Platform.runLater(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          runnable.run();
+        }
+        finally {
+          latch.countDown();
+        }
+      }
+    });
+
+    assertTrue("timed out waiting for the JavaFX Application Thread", latch.await(30, TimeUnit.SECONDS));
+  }
+
+  private static class TrackedReference extends WeakReference<Object> {
+    final String description;
+    final int iteration;
+
+    TrackedReference(Object referent, String description, int iteration) {
+      super(referent);
+
+      this.description = description;
+      this.iteration = iteration;
+    }
+
+    @Override
+    public String toString() {
+      return description + " from iteration " + iteration;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package hs.javafx.control;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CarouselRasterizerTest {
+  private final ForkJoinPool pool = new ForkJoinPool(2);
+  private final CarouselRasterizer rasterizer = new CarouselRasterizer();
+
+  @After
+  public void after() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void shouldReproduceTextureExactlyOnAxisAlignedQuad() {
+    int[] texels = new int[8 * 4];
+
+    for(int i = 0; i < texels.length; i++) {
+      texels[i] = 0xff000000 | i * 0x070503;
+    }
+
+    CarouselRasterizer.Texture texture = new CarouselRasterizer.Texture(texels, 8, 4, true);
+
+    rasterizer.beginFrame(16, 16, 0);
+    rasterizer.addQuad(texture, new double[] {0, 0, 8, 0, 8, 4, 0, 4}, 2, 3, 1.0);
+    rasterizer.render(pool);
+
+    int[] pixels = rasterizer.getPixels();
+
+    for(int y = 0; y < 16; y++) {
+      for(int x = 0; x < 16; x++) {
+        boolean inside = x >= 2 && x < 10 && y >= 3 && y < 7;
+
+        assertEquals("pixel " + x + "," + y, inside ? texels[(y - 3) * 8 + x - 2] : 0, pixels[y * 16 + x]);
+      }
+    }
+  }
+
+  @Test
+  public void shouldFadeReflectionLinearly() {
+    int[] texels = new int[4 * 10];
+
+    Arrays.fill(texels, 0xffffffff);
+
+    CarouselRasterizer.Texture texture = new CarouselRasterizer.Texture(texels, 4, 10, true);
+
+    rasterizer.beginFrame(4, 20, 0);
+    rasterizer.addQuad(texture, new double[] {0, 0, 4, 0, 4, 20, 0, 20}, 0, 0, 1.0, 0, 1.0, 1.0, 0.0);
+    rasterizer.render(pool);
+
+    int[] pixels = rasterizer.getPixels();
+
+    for(int y = 0; y < 10; y++) {
+      assertEquals("texture row " + y, 0xffffffff, pixels[y * 4 + 1]);
+    }
+
+    for(int k = 0; k < 10; k++) {
+      double expectedAlpha = 255 * (1 - (k + 0.5) / 10);
+
+      for(int x = 0; x < 4; x++) {
+        int pixel = pixels[(10 + k) * 4 + x];
+
+        assertEquals("reflection row " + k + " alpha", expectedAlpha, pixel >>> 24, 2.0);  // opacity is applied in steps of 1/256
+        assertEquals("reflection row " + k + " red", pixel >>> 24, (pixel >> 16) & 0xff);  // premultiplied white
+      }
+    }
+  }
+}
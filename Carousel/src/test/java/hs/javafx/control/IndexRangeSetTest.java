@@ -0,0 +1,124 @@
+package hs.javafx.control;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class IndexRangeSetTest {
+  private final IndexRangeSet set = new IndexRangeSet();
+
+  @Test
+  public void shouldMergeAdjacentAndOverlappingRanges() {
+    set.add(0, 5);
+    set.add(5, 10);
+    set.add(20, 30);
+    set.add(8, 21);
+
+    assertEquals("{0=30}", set.toString());
+    assertEquals(30, set.size());
+  }
+
+  @Test
+  public void shouldKeepSeparateRangesApart() {
+    set.add(0, 5);
+    set.add(6, 10);
+
+    assertEquals("{0=5, 6=10}", set.toString());
+    assertEquals(9, set.size());
+    assertFalse(set.contains(5));
+    assertTrue(set.contains(6));
+  }
+
+  @Test
+  public void shouldSplitRangeWhenRemovingFromMiddle() {
+    set.add(0, 10);
+    set.remove(3, 6);
+
+    assertEquals("{0=3, 6=10}", set.toString());
+    assertEquals(7, set.size());
+  }
+
+  @Test
+  public void shouldRemoveAcrossRanges() {
+    set.add(0, 5);
+    set.add(10, 15);
+    set.add(20, 25);
+    set.remove(3, 22);
+
+    assertEquals("{0=3, 22=25}", set.toString());
+    assertEquals(6, set.size());
+  }
+
+  @Test
+  public void shouldClearSingleIndexAfterSelectingAll() {
+    set.set(0, 1000000);
+    set.remove(500, 501);
+
+    assertEquals("{0=500, 501=1000000}", set.toString());
+    assertEquals(999999, set.size());
+    assertFalse(set.contains(500));
+  }
+
+  @Test
+  public void shouldShiftRangesAfterInsertion() {
+    set.add(0, 5);
+    set.add(10, 15);
+    set.insert(7, 3);
+
+    assertEquals("{0=5, 13=18}", set.toString());
+    assertEquals(10, set.size());
+  }
+
+  @Test
+  public void shouldSplitRangeContainingInsertionPoint() {
+    set.add(0, 10);
+    set.insert(4, 2);
+
+    assertEquals("{0=4, 6=12}", set.toString());
+    assertEquals(10, set.size());
+  }
+
+  @Test
+  public void shouldShiftAndMergeRangesAfterDeletion() {
+    set.add(0, 5);
+    set.add(8, 12);
+    set.add(20, 22);
+    set.delete(5, 3);
+
+    assertEquals("{0=9, 17=19}", set.toString());
+    assertEquals(11, set.size());
+  }
+
+  @Test
+  public void shouldRebuildRangesAfterPermutation() {
+    set.add(0, 2);
+    set.add(5, 6);
+
+    set.permute(0, 6, new int[] {5, 4, 3, 2, 1, 0});  // reversed
+
+    assertEquals("{0=1, 4=6}", set.toString());
+    assertEquals(3, set.size());
+  }
+
+  @Test
+  public void shouldOnlyPermuteWithinRange() {
+    set.add(0, 10);
+
+    set.permute(2, 5, new int[] {3, 4, 2});
+
+    assertEquals("{0=10}", set.toString());
+    assertEquals(10, set.size());
+  }
+
+  @Test
+  public void shouldPermutePartOfRangeOverlappingStart() {
+    set.add(0, 3);
+
+    set.permute(2, 5, new int[] {4, 2, 3});
+
+    assertEquals("{0=2, 4=5}", set.toString());
+    assertEquals(3, set.size());
+  }
+}